@@ -0,0 +1,40 @@
+package memorizer;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+// Synthetic word lists and temp directories shared by the benchmarks
+final class BenchFiles {
+
+    private static final PrintStream console = System.out;
+
+    private BenchFiles() {
+    }
+
+    static void fill(Map<String, String> list, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            list.put("word" + i, "meaning" + i + " of a synthetic word");
+        }
+    }
+
+    // What the lists say about themselves would drown the results
+    static void silence() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    static void restore() {
+        System.setOut(console);
+    }
+
+    static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child: children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,107 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// A directory of FILES lists of PAIRS_PER_FILE pairs: adding all of
+// them to the review list, one after another and in parallel, and
+// moving the directory file by file and as one bundle
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmemorizer.cacheBytes=0")
+@State(Scope.Benchmark)
+public class DirectoryBench {
+
+    private static final int FILES = 200;
+    private static final int PAIRS_PER_FILE = 1_000;
+
+    private File parent;
+    private File lists;
+    private File target;
+    private File bundle;
+    private Memorizer memo;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFiles.silence();
+        parent = Files.createTempDirectory("memorizer-bench").toFile();
+        lists = new File(parent, "lists");
+        lists.mkdir();
+        Memorizer writer = new Memorizer(lists.getPath(), false);
+        for (int i = 0; i < FILES; i++) {
+            Memorizer.WordList list = writer.newWordList("list" + i);
+            BenchFiles.fill(list.list, i * PAIRS_PER_FILE / 2, PAIRS_PER_FILE);
+            writer.serialize(list);
+        }
+        writer.quit();
+        writer.close();
+        memo = new Memorizer(lists.getPath(), false);
+        target = new File(parent, "unpacked");
+        bundle = new File(parent, "lists" + WordBundle.EXTENSION);
+        WordBundle.export(lists, bundle);
+    }
+
+    @TearDown
+    public void tearDown() {
+        memo.close();
+        BenchFiles.deleteAll(parent);
+        BenchFiles.restore();
+    }
+
+    // A state for the benchmarks that need an empty target directory
+    @State(Scope.Thread)
+    public static class EmptyTarget {
+        @Setup(Level.Invocation)
+        public void empty(DirectoryBench bench) {
+            BenchFiles.deleteAll(bench.target);
+            bench.target.mkdir();
+        }
+    }
+
+    @Benchmark
+    public void addAllToReview() {
+        memo.setLoadParallelism(1);
+        memo.addAllToReview();
+    }
+
+    @Benchmark
+    public void addAllToReviewParallel() {
+        memo.setLoadParallelism(Runtime.getRuntime().availableProcessors());
+        memo.addAllToReview();
+    }
+
+    @Benchmark
+    public void copyFiles(EmptyTarget empty) throws Exception {
+        for (File file: lists.listFiles()) {
+            if (file.isFile()) {
+                Files.copy(file.toPath(), target.toPath().resolve(file.getName()));
+            }
+        }
+    }
+
+    @Benchmark
+    public WordBundle.Result bundleExport() throws Exception {
+        return WordBundle.export(lists, new File(parent, "export" + WordBundle.EXTENSION));
+    }
+
+    @Benchmark
+    public WordBundle.Result bundleImport(EmptyTarget empty) throws Exception {
+        return WordBundle.unpack(bundle, target, Collections.emptyList());
+    }
+
+    @Benchmark
+    public WordBundle.Result bundleImportUnchanged() throws Exception {
+        return WordBundle.unpack(bundle, lists, Collections.emptyList());
+    }
+
+    @Benchmark
+    public WordBundle.Result bundleImportOne(EmptyTarget empty) throws Exception {
+        return WordBundle.unpack(bundle, target, Collections.singletonList("list7"));
+    }
+}
@@ -0,0 +1,79 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Aggregates over size answers about 100k words; open scans every
+// answer once, the others run on a history already opened
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBench {
+
+    private static final int WORDS = 100_000;
+
+    @Param({"1000000", "20000000"})
+    public int size;
+
+    private File dir;
+    private AnswerHistory history;
+    private final List<String> some = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("memorizer-bench").toFile();
+        Random random = new Random(11);
+        try (AnswerHistory writer = new AnswerHistory(dir)) {
+            long time = 1_600_000_000_000L;
+            for (int i = 0; i < size; i++) {
+                time += random.nextInt(60_000);
+                writer.record("word" + random.nextInt(WORDS), "meaning" + random.nextInt(WORDS), time,
+                        random.nextBoolean(), random.nextInt(4) > 0, random.nextInt(10_000));
+            }
+        }
+        for (int i = 0; i < 1_000; i++) {
+            some.add("word" + i);
+        }
+        history = new AnswerHistory(dir);
+        history.mostMissed(10);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        history.close();
+        BenchFiles.deleteAll(dir);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<AnswerHistory.WordStat> open() throws Exception {
+        try (AnswerHistory opened = new AnswerHistory(dir)) {
+            return opened.mostMissed(10);
+        }
+    }
+
+    @Benchmark
+    public List<AnswerHistory.WordStat> mostMissed() throws Exception {
+        return history.mostMissed(10);
+    }
+
+    @Benchmark
+    public AnswerHistory.Accuracy accuracy() throws Exception {
+        return history.accuracy("list", some);
+    }
+
+    @Benchmark
+    public List<AnswerHistory.Accuracy> forgettingCurve() throws Exception {
+        return history.forgettingCurve();
+    }
+}
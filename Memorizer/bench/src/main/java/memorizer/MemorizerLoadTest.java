@@ -0,0 +1,120 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test of MemorizerServer.
+// Starts a server on a free port over a temp directory, then lets a
+// number of simulated users store words, review them and quit, all at
+// the same time. Reports throughput and request latency percentiles.
+//
+// Run from the bench module jar:
+//   java -cp target/benchmarks.jar memorizer.MemorizerLoadTest [users] [words per user]
+public class MemorizerLoadTest {
+
+    private static final Gson gson = new Gson();
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private static final Metrics.Histogram latency = new Metrics.Histogram();
+    private static final AtomicLong errors = new AtomicLong();
+
+    private static HttpClient client;
+    private static String base;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int words = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        File dir = Files.createTempDirectory("memorizer-load").toFile();
+        MemorizerServer server = new MemorizerServer(dir, 0);
+        server.start();
+        base = "http://localhost:" + server.getPort();
+        ExecutorService userThreads = Executors.newFixedThreadPool(Math.min(users, 256));
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        try {
+            List<Future<?>> running = new ArrayList<>(users);
+            long start = System.nanoTime();
+            for (int i = 0; i < users; i++) {
+                String user = "user" + i;
+                running.add(userThreads.submit(() -> {
+                    simulate(user, words);
+                    return null;
+                }));
+            }
+            for (Future<?> user: running) {
+                user.get();
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%d users x %d words: %d requests in %.1f ms, %.0f requests/s, %d errors%n",
+                    users, words, latency.count(), nanos / 1e6, latency.count() * 1e9 / nanos, errors.get());
+            System.out.printf("latency ms: mean %.3f, p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                    latency.mean() / 1e6, latency.percentile(50) / 1e6, latency.percentile(90) / 1e6,
+                    latency.percentile(99) / 1e6, latency.max() / 1e6);
+        } finally {
+            server.stop();
+            userThreads.shutdown();
+            deleteAll(dir);
+        }
+    }
+
+    // One user: store words, review until nothing is due, quit
+    private static void simulate(String user, int words) throws Exception {
+        Random random = new Random(user.hashCode());
+        for (int i = 0; i < words; i++) {
+            call("/store", "user", user, "list", "words",
+                    "word", user + "-word" + i, "meaning", "meaning " + i + " of " + user);
+        }
+        // Stored words only become reviewable after the lists are saved
+        call("/quit", "user", user);
+        while (true) {
+            JsonObject question = call("/review/next", "user", user);
+            if (question == null || !question.has("word") || question.get("word").isJsonNull()) {
+                break;
+            }
+            int options = question.getAsJsonArray("options").size();
+            call("/answer", "user", user, "choice", LETTERS[random.nextInt(options)],
+                    "remembered", random.nextBoolean() ? "y" : "n");
+        }
+        call("/quit", "user", user);
+    }
+
+    // Send one request, return the parsed body or null on an error
+    private static JsonObject call(String path, String... params) throws Exception {
+        StringBuilder uri = new StringBuilder(base).append(path);
+        for (int i = 0; i < params.length; i += 2) {
+            uri.append(i == 0 ? '?' : '&').append(params[i]).append('=')
+                    .append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString())).GET().build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latency.record(System.nanoTime() - start);
+        if (response.statusCode() != 200) {
+            errors.incrementAndGet();
+            return null;
+        }
+        return gson.fromJson(response.body(), JsonObject.class);
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child: children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,103 @@
+package memorizer;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Replay test of CommandEngine.
+// Writes a synthetic session log of the given number of commands into
+// a temp directory: rounds that open one of a few lists, store words
+// into it, add it to the review list and answer questions, with a quit
+// every few rounds. Then replays the log at full speed against a fresh
+// word directory and reports commands per second and the latency
+// percentiles of every command. The log is kept if a path is given, so
+// it can be replayed again with: java -jar memorizer.jar replay <dir> <log>
+//
+// Run from the bench module jar:
+//   java -cp target/benchmarks.jar memorizer.MemorizerReplayTest [commands] [log file]
+public class MemorizerReplayTest {
+
+    private static final int LISTS = 50;
+    private static final int VOCABULARY = 20_000;
+    private static final int STORES_PER_ROUND = 40;
+    private static final int ANSWERS_PER_ROUND = 20;
+    private static final int ROUNDS_PER_SESSION = 25;
+    private static final String[] CHOICES = {"A", "B", "C", "D"};
+
+    public static void main(String[] args) throws Exception {
+        long commands = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        File dir = Files.createTempDirectory("memorizer-replay").toFile();
+        File log = args.length > 1 ? new File(args[1]) : new File(dir, "session.log");
+        File words = new File(dir, "words");
+        words.mkdir();
+        long written = writeLog(log, commands);
+        PrintStream console = System.out;
+        CommandEngine engine = new CommandEngine(words.getPath(), false);
+        long nanos;
+        try (Reader in = new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8)) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            engine.replay(in);
+            engine.close();
+            nanos = System.nanoTime() - start;
+        } finally {
+            System.setOut(console);
+        }
+        System.out.printf("%d commands (%d bytes of log) in %.1f ms, %.0f commands/s%n",
+                written, log.length(), nanos / 1e6, written * 1e9 / nanos);
+        System.out.println(engine.getMetrics().report());
+        // A log the caller named lives outside dir and is kept
+        deleteAll(dir);
+    }
+
+    // Write rounds of commands until there are at least commands of them
+    private static long writeLog(File file, long commands) throws IOException {
+        Gson gson = new Gson();
+        Random random = new Random(7);
+        long ret = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            for (long round = 0; ret < commands; round++) {
+                String list = "list" + random.nextInt(LISTS);
+                ret += write(out, gson, "open", list);
+                for (int i = 0; i < STORES_PER_ROUND; i++) {
+                    int word = random.nextInt(VOCABULARY);
+                    ret += write(out, gson, "store", "word" + word, "meaning " + word);
+                }
+                ret += write(out, gson, "add", list);
+                for (int i = 0; i < ANSWERS_PER_ROUND; i++) {
+                    ret += write(out, gson, "review");
+                    ret += write(out, gson, "answer", CHOICES[random.nextInt(CHOICES.length)],
+                            random.nextInt(4) == 0 ? "n" : "y");
+                }
+                if (round % 5 == 4) {
+                    ret += write(out, gson, "addMistakes");
+                }
+                if (round % ROUNDS_PER_SESSION == ROUNDS_PER_SESSION - 1) {
+                    ret += write(out, gson, "quit");
+                }
+            }
+            ret += write(out, gson, "quit");
+        }
+        return ret;
+    }
+
+    private static int write(Writer out, Gson gson, String... command) throws IOException {
+        out.write(gson.toJson(command));
+        out.write('\n');
+        return 1;
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child: children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,56 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// serialize / deserialize of one list, as plain and as gzip-compressed
+// JSON; lists are read from disk, not from the list cache
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmemorizer.cacheBytes=0")
+@State(Scope.Benchmark)
+public class PersistenceBench {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private File dir;
+    private Memorizer memo;
+    private Memorizer.WordList list;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFiles.silence();
+        dir = Files.createTempDirectory("memorizer-bench").toFile();
+        memo = new Memorizer(dir.getPath(), false);
+        memo.setCompressed(compressed);
+        list = memo.newWordList("persist");
+        BenchFiles.fill(list.list, 0, size);
+        memo.serialize(list);
+    }
+
+    @TearDown
+    public void tearDown() {
+        memo.close();
+        BenchFiles.deleteAll(dir);
+        BenchFiles.restore();
+    }
+
+    @Benchmark
+    public boolean serialize() {
+        return memo.serialize(list);
+    }
+
+    @Benchmark
+    public Memorizer.WordList deserialize() {
+        return memo.deserialize(list.name + ".json");
+    }
+}
@@ -0,0 +1,62 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Options of one question on a review list of size meanings: with a
+// sampler kept for the session, with a sampler made per question and
+// with near misses from a NearMissIndex built once per review list
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PickMeaningBench {
+
+    @Param({"4", "1000", "100000", "1000000"})
+    public int size;
+
+    private List<String> meanings;
+    private DistractorSampler sampler;
+    private DistractorSampler nearMisses;
+    private final Random random = new Random(7);
+
+    @Setup
+    public void setUp() {
+        meanings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            meanings.add("meaning" + i);
+        }
+        sampler = new DistractorSampler(meanings, new Random(42));
+        nearMisses = new DistractorSampler(meanings, new Random(42), buildNearMisses());
+    }
+
+    @Benchmark
+    public List<String> pickMeaning() {
+        return Memorizer.pickMeaning(sampler, meanings.get(random.nextInt(size)));
+    }
+
+    @Benchmark
+    public List<String> pickMeaningNewSampler() {
+        return Memorizer.pickMeaning(new DistractorSampler(meanings, random), meanings.get(0));
+    }
+
+    @Benchmark
+    public List<String> pickMeaningNearMiss() {
+        return Memorizer.pickMeaning(nearMisses, meanings.get(random.nextInt(size)));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public NearMissIndex buildNearMisses() {
+        NearMissIndex ret = new NearMissIndex(new WordStore());
+        ret.addAll(meanings);
+        return ret;
+    }
+}
@@ -0,0 +1,66 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// addMisToReview merges and removeWords on a review list of size pairs
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmemorizer.cacheBytes=0")
+@State(Scope.Benchmark)
+public class ReviewListBench {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private File dir;
+    private Memorizer memo;
+    private Memorizer.WordList list;
+    private final Set<String> reviewed = new HashSet<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFiles.silence();
+        dir = Files.createTempDirectory("memorizer-bench").toFile();
+        memo = new Memorizer(dir.getPath(), false);
+        list = memo.newWordList("review" + size);
+        BenchFiles.fill(list.list, 0, size);
+        memo.serialize(list);
+        for (int i = 0; i < size; i += 10) {
+            reviewed.add("word" + i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillReview() {
+        memo.clearReviewed();
+        memo.addToReview(list.name);
+        for (int i = 0; i < size; i += 10) {
+            memo.addToMis("word" + (i + size), "meaning" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        memo.close();
+        BenchFiles.deleteAll(dir);
+        BenchFiles.restore();
+    }
+
+    @Benchmark
+    public void addMisToReview() {
+        memo.addMisToReview();
+    }
+
+    @Benchmark
+    public void removeWords() {
+        memo.removeWords(reviewed);
+    }
+}
@@ -0,0 +1,54 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Prefix, typo-tolerant and meaning searches over size random words
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBench {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private SearchIndex index;
+    private String[] words;
+    private final Random random = new Random(3);
+
+    @Setup
+    public void setUp() {
+        index = new SearchIndex();
+        words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+            index.put("list" + i % 100, words[i], "meaning " + random.nextInt(size) + " of a synthetic word");
+        }
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> prefix() {
+        return index.prefix(words[random.nextInt(size)].substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> fuzzy() {
+        return index.fuzzy(words[random.nextInt(size)] + "x", 1, 10);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> byMeaning() {
+        return index.byMeaning("meaning " + random.nextInt(size), 10);
+    }
+}
@@ -0,0 +1,67 @@
+package memorizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Time until a memorizer can show its menu, over a directory that was
+// quit once with size words in review: review.json, words.store and
+// review.bitmap are all there. With lazy set the review list and the
+// strings are loaded in the background; that load is waited for
+// outside the measurement
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dmemorizer.cacheBytes=0")
+@State(Scope.Benchmark)
+public class StartupBench {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private File dir;
+    private Memorizer opened;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchFiles.silence();
+        dir = Files.createTempDirectory("memorizer-bench").toFile();
+        Memorizer writer = new Memorizer(dir.getPath(), false);
+        writer.initStorage("lists");
+        Memorizer.WordList list = writer.newWordList("lists");
+        BenchFiles.fill(list.list, 0, size);
+        writer.serialize(list);
+        writer.initStorage("");
+        writer.addToReview("lists");
+        writer.quit();
+        writer.close();
+        System.setProperty("memorizer.lazyReview", String.valueOf(lazy));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeOpened() {
+        if (opened != null) {
+            opened.close();
+            opened = null;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("memorizer.lazyReview");
+        BenchFiles.deleteAll(dir);
+        BenchFiles.restore();
+    }
+
+    @Benchmark
+    public Memorizer startup() {
+        opened = new Memorizer(dir.getPath(), false);
+        return opened;
+    }
+}
@@ -0,0 +1,367 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Every answer given in a review, kept in append-only column files.
+// One answer is one row: word id, epoch millis, flags (remembered,
+// correct), latency in millis and the id of the meaning that was picked.
+// Each column is a file of big-endian primitives under dir/answers.history,
+// and words and meanings get ids from strings.dict, which only grows, so
+// ids stay the same across runs. The ids of words.store cannot be used
+// instead: quit moves the review list to a new store when it shrinks
+// (see ReviewSet.compacted), which would give the ids in rows already
+// written to other strings. In memory strings.dict is interned into a
+// WordStore of its own, which is never saved, so its strings are kept
+// as UTF-8 bytes like those of words.store and not as Strings in a
+// HashMap. The first query maps the columns and scans them once in
+// chunks of primitive arrays into per-word and per-gap totals, which
+// record() then keeps up to date; queries only read the totals, and
+// nothing is boxed per answer
+public class AnswerHistory implements Closeable {
+
+    public static final String DIR_NAME = "answers.history";
+
+    private static final String DICTIONARY = "strings.dict";
+    private static final String WORDS = "word.i32";
+    private static final String TIMES = "time.i64";
+    private static final String FLAGS = "flags.i8";
+    private static final String LATENCIES = "latency.i32";
+    private static final String CHOSEN = "chosen.i32";
+
+    // Rows copied out of the mapped columns at a time
+    private static final int CHUNK = 1 << 14;
+
+    private static final byte REMEMBERED = 1;
+    private static final byte CORRECT = 2;
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+    // Forgetting curve buckets, see gapOf
+    private static final String[] GAP_LABELS = {"< 1 hour", "< 1 day", "< 2 days", "< 4 days", "< 8 days",
+            "< 16 days", "< 32 days", "< 64 days", "< 128 days", ">= 128 days"};
+
+    // How often a word was answered and missed
+    public static class WordStat {
+        public final String word;
+        public final int answers;
+        public final int misses;
+
+        WordStat(String word, int answers, int misses) {
+            this.word = word;
+            this.answers = answers;
+            this.misses = misses;
+        }
+
+        @Override
+        public String toString() {
+            return word + " -- missed " + misses + " of " + answers;
+        }
+    }
+
+    // Answers and correct answers of a group of questions
+    public static class Accuracy {
+        public final String label;
+        public final long answers;
+        public final long correct;
+
+        Accuracy(String label, long answers, long correct) {
+            this.label = label;
+            this.answers = answers;
+            this.correct = correct;
+        }
+
+        // Share of correct answers, 0 without answers
+        public double rate() {
+            return answers == 0 ? 0 : (double) correct / answers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.1f%% of %d", label, rate() * 100, answers);
+        }
+    }
+
+    private final File dir;
+    // Strings of strings.dict, with the ids they have there
+    private final WordStore strings = new WordStore();
+    private final DataOutputStream dictionary;
+    private final DataOutputStream words;
+    private final DataOutputStream times;
+    private final DataOutputStream flags;
+    private final DataOutputStream latencies;
+    private final DataOutputStream chosen;
+    private long rows;
+
+    // Totals derived from the columns; built by one scan on the
+    // first query, then kept up to date by record()
+    private boolean aggregated;
+    private int[] answersOf = new int[0];
+    private int[] missesOf = new int[0];
+    // Time of the last answer of each word, or Long.MIN_VALUE
+    private long[] lastSeen = new long[0];
+    private final long[] gapAnswers = new long[GAP_LABELS.length];
+    private final long[] gapCorrect = new long[GAP_LABELS.length];
+
+    // Open the history kept under parent, creating it if needed
+    // Rows or strings torn by a crash are cut off
+    public AnswerHistory(File parent) throws IOException {
+        dir = new File(parent, DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        readDictionary();
+        rows = Long.MAX_VALUE;
+        for (String column: new String[] {WORDS, TIMES, FLAGS, LATENCIES, CHOSEN}) {
+            rows = Math.min(rows, new File(dir, column).length() / widthOf(column));
+        }
+        for (String column: new String[] {WORDS, TIMES, FLAGS, LATENCIES, CHOSEN}) {
+            truncate(new File(dir, column), rows * widthOf(column));
+        }
+        dictionary = appender(DICTIONARY);
+        words = appender(WORDS);
+        times = appender(TIMES);
+        flags = appender(FLAGS);
+        latencies = appender(LATENCIES);
+        chosen = appender(CHOSEN);
+    }
+
+    // Append one answer; flush() makes it visible to the file system
+    // picked is the meaning that was chosen, null if none was
+    public synchronized void record(String word, String picked, long time, boolean remembered,
+                                    boolean correct, int latencyMillis) throws IOException {
+        int id = idOf(word);
+        words.writeInt(id);
+        times.writeLong(time);
+        flags.writeByte((remembered ? REMEMBERED : 0) | (correct ? CORRECT : 0));
+        latencies.writeInt(latencyMillis);
+        chosen.writeInt(picked == null ? -1 : idOf(picked));
+        rows++;
+        if (aggregated) {
+            grow(id);
+            add(id, time, correct);
+        }
+    }
+
+    // Write the answers recorded so far
+    public synchronized void flush() throws IOException {
+        // Strings first, so no row refers to an id that is not on disk
+        dictionary.flush();
+        words.flush();
+        times.flush();
+        flags.flush();
+        latencies.flush();
+        chosen.flush();
+    }
+
+    // Number of answers recorded
+    public synchronized long size() {
+        return rows;
+    }
+
+    // Up to n words missed most often, most missed first
+    public synchronized List<WordStat> mostMissed(int n) throws IOException {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        aggregate();
+        // Ids of the top n so far, most missed first
+        int[] top = new int[n];
+        int found = 0;
+        for (int id = 0; id < missesOf.length; id++) {
+            if (missesOf[id] == 0 || (found == n && !missedMore(id, top[n - 1]))) {
+                continue;
+            }
+            int at = Math.min(found, n - 1);
+            while (at > 0 && missedMore(id, top[at - 1])) {
+                top[at] = top[at - 1];
+                at--;
+            }
+            top[at] = id;
+            found = Math.min(found + 1, n);
+        }
+        List<WordStat> ret = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            ret.add(new WordStat(strings.get(top[i]), answersOf[top[i]], missesOf[top[i]]));
+        }
+        return ret;
+    }
+
+    // Accuracy of the answers about the given words
+    public synchronized Accuracy accuracy(String label, Collection<String> of) throws IOException {
+        aggregate();
+        long answers = 0;
+        long misses = 0;
+        for (String word: of) {
+            int id = strings.lookup(word);
+            if (id >= 0 && id < answersOf.length) {
+                answers += answersOf[id];
+                misses += missesOf[id];
+            }
+        }
+        return new Accuracy(label, answers, answers - misses);
+    }
+
+    // Accuracy of all answers by how long ago the same word was last
+    // answered; first answers of a word are left out
+    public synchronized List<Accuracy> forgettingCurve() throws IOException {
+        aggregate();
+        List<Accuracy> ret = new ArrayList<>(GAP_LABELS.length);
+        for (int i = 0; i < GAP_LABELS.length; i++) {
+            ret.add(new Accuracy(GAP_LABELS[i], gapAnswers[i], gapCorrect[i]));
+        }
+        return ret;
+    }
+
+    // Build the totals with one pass over the columns
+    private void aggregate() throws IOException {
+        if (aggregated) {
+            return;
+        }
+        flush();
+        grow(strings.size() - 1);
+        IntBuffer word = map(WORDS).asIntBuffer();
+        LongBuffer time = map(TIMES).asLongBuffer();
+        ByteBuffer flag = map(FLAGS);
+        int[] wordChunk = new int[CHUNK];
+        long[] timeChunk = new long[CHUNK];
+        byte[] flagChunk = new byte[CHUNK];
+        for (long start = 0; start < rows; start += CHUNK) {
+            int length = (int) Math.min(CHUNK, rows - start);
+            word.get(wordChunk, 0, length);
+            time.get(timeChunk, 0, length);
+            flag.get(flagChunk, 0, length);
+            for (int i = 0; i < length; i++) {
+                add(wordChunk[i], timeChunk[i], (flagChunk[i] & CORRECT) != 0);
+            }
+        }
+        aggregated = true;
+    }
+
+    // Count one answer into the totals
+    private void add(int id, long time, boolean correct) {
+        answersOf[id]++;
+        if (!correct) {
+            missesOf[id]++;
+        }
+        if (lastSeen[id] != Long.MIN_VALUE) {
+            int gap = gapOf(time - lastSeen[id]);
+            gapAnswers[gap]++;
+            if (correct) {
+                gapCorrect[gap]++;
+            }
+        }
+        lastSeen[id] = time;
+    }
+
+    // Make room in the totals for ids up to id
+    private void grow(int id) {
+        int length = answersOf.length;
+        if (id < length) {
+            return;
+        }
+        int capacity = Math.max(id + 1, length * 2);
+        answersOf = Arrays.copyOf(answersOf, capacity);
+        missesOf = Arrays.copyOf(missesOf, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        Arrays.fill(lastSeen, length, capacity, Long.MIN_VALUE);
+    }
+
+    // Forgetting curve bucket of a time between two answers:
+    // an hour, a day, then doubling numbers of days
+    private static int gapOf(long millis) {
+        if (millis < HOUR) {
+            return 0;
+        }
+        if (millis < DAY) {
+            return 1;
+        }
+        return Math.min(GAP_LABELS.length - 1, 2 + 63 - Long.numberOfLeadingZeros(millis / DAY));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (Closeable column: new Closeable[] {dictionary, words, times, flags, latencies, chosen}) {
+            column.close();
+        }
+    }
+
+    // Whether a should come before b in mostMissed
+    private boolean missedMore(int a, int b) {
+        if (missesOf[a] != missesOf[b]) {
+            return missesOf[a] > missesOf[b];
+        }
+        return answersOf[a] < answersOf[b];
+    }
+
+    private int idOf(String s) throws IOException {
+        int id = strings.lookup(s);
+        if (id >= 0) {
+            return id;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dictionary.writeInt(bytes.length);
+        dictionary.write(bytes);
+        return strings.intern(s);
+    }
+
+    // Read strings.dict, cutting off a torn last string
+    private void readDictionary() throws IOException {
+        File file = new File(dir, DICTIONARY);
+        if (!file.exists()) {
+            return;
+        }
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16))) {
+            while (true) {
+                int length = in.readInt();
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                strings.internUtf8(ByteBuffer.wrap(bytes), 0, length);
+                valid += 4 + length;
+            }
+        } catch (EOFException e) {
+            // End of the dictionary, or of its last complete string
+        }
+        truncate(file, valid);
+    }
+
+    private DataOutputStream appender(String column) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(dir, column), true), 1 << 16));
+    }
+
+    // Map the rows of a column read-only
+    private ByteBuffer map(String column) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(dir, column).toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, rows * widthOf(column));
+        }
+    }
+
+    private static int widthOf(String column) {
+        switch (column) {
+            case TIMES:
+                return 8;
+            case FLAGS:
+                return 1;
+            default:
+                return 4;
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (file.length() > length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes files through a temp file that is renamed over the old one,
+// so a reader or a crash sees either the old or the new content
+public class AtomicFiles {
+
+    public static final String TEMP_EXTENSION = ".tmp";
+
+    // Content of a file written by write
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    // Replace file with what content writes
+    public static void write(File file, Content content) throws IOException {
+        File temp = tempFor(file);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 1 << 16)) {
+            content.writeTo(out);
+        }
+        replace(temp, file);
+    }
+
+    // Temp file to write the new content of file into, next to it;
+    // the directory is created if needed
+    public static File tempFor(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        return new File(dir, file.getName() + TEMP_EXTENSION);
+    }
+
+    // Rename temp over file; temp is deleted if that fails
+    public static void replace(File temp, File file) throws IOException {
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    // Force what was written to file onto the disk
+    public static void sync(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Force the names created, renamed and deleted in dir onto the disk
+    // Some systems, Windows among them, cannot open a directory and do
+    // this on their own
+    public static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Nothing to force
+        }
+    }
+}
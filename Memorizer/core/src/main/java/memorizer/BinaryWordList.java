@@ -0,0 +1,345 @@
+package memorizer;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Compact binary form of a word list, stored next to <name>.json as
+// <name>.wlb and read through a memory-mapped FileChannel.
+//
+// Layout (big-endian):
+//   int magic, int version, int count, int nameLength, name bytes
+//   count index slots of (int hash, int offset), sorted by hash
+//   data: per pair, int wordLength, word bytes, int meaningLength, meaning bytes
+// Words and meanings are UTF-8, offsets are relative to the data
+// section and hashes are FNV-1a over the UTF-8 bytes of the word, so a
+// lookup never has to decode a word stored in the file
+public class BinaryWordList implements Closeable {
+
+    public static final String EXTENSION = ".wlb";
+
+    private static final int MAGIC = 0x574c4231; // "WLB1"
+    private static final int VERSION = 1;
+    private static final int SLOT_SIZE = 8;
+
+    private final MappedByteBuffer buffer;
+    private final String name;
+    private final int count;
+    private final int indexStart;
+    private final int dataStart;
+
+    private BinaryWordList(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a binary word list");
+        }
+        count = buffer.getInt(8);
+        int nameLength = buffer.getInt(12);
+        byte[] nameBytes = new byte[nameLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(16);
+        view.get(nameBytes);
+        name = new String(nameBytes, StandardCharsets.UTF_8);
+        indexStart = 16 + nameLength;
+        dataStart = indexStart + count * SLOT_SIZE;
+    }
+
+    // Binary file belonging to the given list
+    public static File fileFor(File dir, String listName) {
+        return new File(dir, listName + EXTENSION);
+    }
+
+    // Map file into memory
+    public static BinaryWordList open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new BinaryWordList(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Write list into file in the binary format, through a temp file
+    // so that a crash leaves either the old or the new list
+    public static void write(Memorizer.WordList list, File file) throws IOException {
+        int n = list.list.size();
+        long[] slots = new long[n];
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        int i = 0;
+        for (Map.Entry<String, String> pair: list.list.entrySet()) {
+            byte[] word = pair.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] meaning = pair.getValue().getBytes(StandardCharsets.UTF_8);
+            // Pack the hash into the high half so sorting
+            // the longs sorts the slots by hash
+            slots[i++] = ((long) hash(word) << 32) | (dataOut.size() & 0xffffffffL);
+            dataOut.writeInt(word.length);
+            dataOut.write(word);
+            dataOut.writeInt(meaning.length);
+            dataOut.write(meaning);
+        }
+        Arrays.sort(slots);
+        byte[] nameBytes = list.name.getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.write(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(nameBytes.length);
+            out.write(nameBytes);
+            for (long slot: slots) {
+                out.writeLong(slot);
+            }
+            data.writeTo(out);
+            out.flush();
+        });
+    }
+
+    // Name of the list
+    public String name() {
+        return name;
+    }
+
+    // Number of pairs in the list
+    public int size() {
+        return count;
+    }
+
+    // Whether word is in the list
+    public boolean contains(String word) {
+        return find(word.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    // Meaning of word, or null if it is not in the list
+    public String get(String word) {
+        int offset = find(word.getBytes(StandardCharsets.UTF_8));
+        if (offset < 0) {
+            return null;
+        }
+        int wordLength = buffer.getInt(offset);
+        return decode(offset + 4 + wordLength);
+    }
+
+    // Call action with every pair of the list, in file order
+    public void forEach(BiConsumer<String, String> action) {
+        int offset = dataStart;
+        for (int i = 0; i < count; i++) {
+            String word = decode(offset);
+            offset += 4 + buffer.getInt(offset);
+            String meaning = decode(offset);
+            offset += 4 + buffer.getInt(offset);
+            action.accept(word, meaning);
+        }
+    }
+
+    // Put every pair of the list into target
+    // A target that keeps WordStore IDs gets the bytes of the file
+    // interned straight into its store, without building Strings
+    public void putAllInto(Map<String, String> target) {
+        if (!(target instanceof WordIdMap)) {
+            forEach(target::put);
+            return;
+        }
+        WordIdMap ids = (WordIdMap) target;
+        WordStore store = ids.getStore();
+        int offset = dataStart;
+        for (int i = 0; i < count; i++) {
+            int wordLength = buffer.getInt(offset);
+            int word = store.internUtf8(buffer, offset + 4, wordLength);
+            offset += 4 + wordLength;
+            int meaningLength = buffer.getInt(offset);
+            ids.putId(word, store.internUtf8(buffer, offset + 4, meaningLength));
+            offset += 4 + meaningLength;
+        }
+    }
+
+    // Remove every word of the list from target
+    public void removeAllFrom(Map<String, String> target) {
+        if (target instanceof WordIdMap) {
+            removeAllFrom((WordIdMap) target, target.size());
+            return;
+        }
+        if (target.size() <= count) {
+            // Probe the index with the target's words,
+            // nothing is decoded from the file
+            target.keySet().removeIf(this::contains);
+            return;
+        }
+        int offset = dataStart;
+        for (int i = 0; i < count; i++) {
+            target.remove(decode(offset));
+            offset += 4 + buffer.getInt(offset);
+            offset += 4 + buffer.getInt(offset);
+        }
+    }
+
+    // Same as above for a target keeping WordStore IDs; neither the
+    // words of the file nor those of target are decoded
+    private void removeAllFrom(WordIdMap target, int size) {
+        WordStore store = target.getStore();
+        if (size <= count) {
+            // Probe the index with the bytes the store holds
+            target.removeIdsIf(id -> find(store.utf8(id)) >= 0);
+            return;
+        }
+        // Look the words of the file up in the store; a word the
+        // store does not hold cannot be in target
+        WordBitmap removed = new WordBitmap();
+        int offset = dataStart;
+        for (int i = 0; i < count; i++) {
+            int wordLength = buffer.getInt(offset);
+            int id = store.lookupUtf8(buffer, offset + 4, wordLength);
+            if (id >= 0) {
+                removed.add(id);
+            }
+            offset += 4 + wordLength;
+            offset += 4 + buffer.getInt(offset);
+        }
+        target.removeIdsIf(removed::contains);
+    }
+
+    // Read the whole list into a WordList
+    public Memorizer.WordList toWordList() {
+        Memorizer.WordList ret = new Memorizer.WordList();
+        ret.name = name;
+        ret.list = new HashMap<>(count * 4 / 3 + 1);
+        putAllInto(ret.list);
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released when the buffer is collected
+    }
+
+    // Convert <json> written by Memorizer into the binary format
+    public static void jsonToBinary(File json, File binary) throws IOException {
+        write(new WordListReader().read(json), binary);
+    }
+
+    // Convert a binary list back into the JSON written by Memorizer
+    public static void binaryToJson(File binary, File json) throws IOException {
+        BinaryWordList list = open(binary);
+        AtomicFiles.write(json, stream -> {
+            JsonWriter out = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                    stream, StandardCharsets.UTF_8), 1 << 16));
+            out.beginObject();
+            out.name("name").value(list.name());
+            out.name("list").beginObject();
+            IOException[] failure = new IOException[1];
+            list.forEach((word, meaning) -> {
+                try {
+                    if (failure[0] == null) {
+                        out.name(word).value(meaning);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.endObject();
+            out.endObject();
+            out.flush();
+        });
+    }
+
+    // Converter between the two formats
+    // Usage: BinaryWordList (to-binary|to-json) <directory> <list name>...
+    public static void main(String[] args) {
+        if (args.length < 3 || (!args[0].equals("to-binary") && !args[0].equals("to-json"))) {
+            System.out.println("Usage: BinaryWordList (to-binary|to-json) <directory> <list name>...");
+            return;
+        }
+        File dir = new File(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            File binary = fileFor(dir, args[i]);
+            File json = args[0].equals("to-binary") ? DirectoryCatalog.jsonFile(dir, args[i])
+                    : new File(dir, args[i] + ".json");
+            try {
+                if (args[0].equals("to-binary")) {
+                    jsonToBinary(json, binary);
+                    System.out.println("Converted " + json.getName() + " to " + binary.getName());
+                } else {
+                    binaryToJson(binary, json);
+                    System.out.println("Converted " + binary.getName() + " to " + json.getName());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Binary search the index for word and return
+    // the absolute offset of its pair, or -1
+    private int find(byte[] word) {
+        int h = hash(word);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midHash = buffer.getInt(indexStart + mid * SLOT_SIZE);
+            if (midHash < h) {
+                lo = mid + 1;
+            } else if (midHash > h) {
+                hi = mid - 1;
+            } else {
+                lo = mid;
+                break;
+            }
+        }
+        if (lo >= count) {
+            return -1;
+        }
+        // Step back to the first slot with this hash,
+        // then check every colliding word byte by byte
+        while (lo > 0 && buffer.getInt(indexStart + (lo - 1) * SLOT_SIZE) == h) {
+            lo--;
+        }
+        for (int i = lo; i < count && buffer.getInt(indexStart + i * SLOT_SIZE) == h; i++) {
+            int offset = dataStart + buffer.getInt(indexStart + i * SLOT_SIZE + 4);
+            if (equalsAt(offset, word)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    // Whether the length-prefixed bytes at offset equal word
+    private boolean equalsAt(int offset, byte[] word) {
+        if (buffer.getInt(offset) != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (buffer.get(offset + 4 + i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Decode the length-prefixed string at offset
+    private String decode(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // FNV-1a hash of the bytes
+    private static int hash(byte[] bytes) {
+        int h = 0x811c9dc5;
+        for (byte b: bytes) {
+            h ^= b & 0xff;
+            h *= 0x01000193;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,225 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Non-interactive import of large word files.
+// Lines are streamed from a TSV, CSV or "word: meaning" file, parsed in
+// batches and put into a list according to a duplicate policy; the
+// caller writes the list once at the end instead of once per word.
+// A first line of just "word" and "meaning" is taken for a header and
+// skipped
+public class BulkImporter {
+
+    // Layout of the lines of the imported file
+    public enum Format {
+        // word<TAB>meaning
+        TSV,
+        // word,meaning with optional "quoted" fields
+        CSV,
+        // word: meaning, split on the first colon only
+        COLON;
+
+        // Guess the format from the file extension
+        public static Format of(File file) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".tsv")) {
+                return TSV;
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            return COLON;
+        }
+    }
+
+    // What to do with a word that is already in the list
+    public enum DuplicatePolicy {
+        KEEP_FIRST,
+        KEEP_LAST,
+        // Keep both meanings, separated by "; "
+        MERGE;
+
+        public static DuplicatePolicy of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    // Outcome of one import
+    public static class Result {
+        public long lines;
+        public long imported;
+        public long duplicates;
+        public long malformed;
+        // Whether the first line was a header
+        public boolean header;
+        public long nanos;
+        // Line numbers of the first malformed lines
+        public final List<Long> malformedLines = new ArrayList<>();
+
+        public double linesPerSecond() {
+            return nanos == 0 ? 0 : lines * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Read " + lines + " lines" + (header ? " with a header" : "") + ": " + imported + " pairs imported, " + duplicates
+                    + " duplicates, " + malformed + " malformed "
+                    + (malformedLines.isEmpty() ? "" : "(lines " + malformedLines + ") ")
+                    + String.format("in %.1f ms, %.0f lines/s", nanos / 1e6, linesPerSecond());
+        }
+    }
+
+    private static final int BATCH_SIZE = 8192;
+    private static final int REPORTED_MALFORMED = 20;
+
+    private final Format format;
+    private final DuplicatePolicy policy;
+
+    public BulkImporter(Format format, DuplicatePolicy policy) {
+        this.format = format;
+        this.policy = policy;
+    }
+
+    // Import every pair of source into target
+    public Result run(File source, Map<String, String> target) throws IOException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        String[] words = new String[BATCH_SIZE];
+        String[] meanings = new String[BATCH_SIZE];
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8), 1 << 16)) {
+            int batch = 0;
+            // Whether no pair has been read yet
+            boolean first = true;
+            String line;
+            while ((line = in.readLine()) != null) {
+                result.lines++;
+                if (result.lines == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!parse(line, words, meanings, batch)) {
+                    result.malformed++;
+                    if (result.malformedLines.size() < REPORTED_MALFORMED) {
+                        result.malformedLines.add(result.lines);
+                    }
+                    continue;
+                }
+                if (first) {
+                    first = false;
+                    if (isHeader(words[batch], meanings[batch])) {
+                        result.header = true;
+                        continue;
+                    }
+                }
+                if (++batch == BATCH_SIZE) {
+                    apply(words, meanings, batch, target, result);
+                    batch = 0;
+                }
+            }
+            apply(words, meanings, batch, target, result);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // Put a batch of parsed pairs into target
+    private void apply(String[] words, String[] meanings, int count, Map<String, String> target, Result result) {
+        for (int i = 0; i < count; i++) {
+            String old = target.get(words[i]);
+            if (old == null) {
+                target.put(words[i], meanings[i]);
+                result.imported++;
+                continue;
+            }
+            result.duplicates++;
+            if (policy == DuplicatePolicy.KEEP_LAST) {
+                target.put(words[i], meanings[i]);
+            } else if (policy == DuplicatePolicy.MERGE && !containsMeaning(old, meanings[i])) {
+                target.put(words[i], old + "; " + meanings[i]);
+            }
+        }
+    }
+
+    private static boolean isHeader(String word, String meaning) {
+        return word.equalsIgnoreCase("word") && meaning.equalsIgnoreCase("meaning");
+    }
+
+    private static boolean containsMeaning(String merged, String meaning) {
+        for (String part: merged.split("; ")) {
+            if (part.equals(meaning)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Split line into words[at] and meanings[at]
+    // Return false if the line is malformed
+    private boolean parse(String line, String[] words, String[] meanings, int at) {
+        String word;
+        String meaning;
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            if (fields == null || fields.size() != 2) {
+                return false;
+            }
+            word = fields.get(0);
+            meaning = fields.get(1);
+        } else {
+            int split = line.indexOf(format == Format.TSV ? '\t' : ':');
+            if (split < 0) {
+                return false;
+            }
+            word = line.substring(0, split);
+            meaning = line.substring(split + 1);
+        }
+        word = word.trim();
+        meaning = meaning.trim();
+        if (word.isEmpty() || meaning.isEmpty()) {
+            return false;
+        }
+        words[at] = word;
+        meanings[at] = meaning;
+        return true;
+    }
+
+    // Fields of one CSV line, or null if a quote is left open
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,405 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Runs the commands of a memorizer session and answers each of them
+// with a Result, so a session can be driven by the console, by a
+// recorded log or by a load generator alike. A command is a name and
+// its string arguments:
+//   open <list>              store the following pairs into list
+//   store <word> <meaning>   store a pair into the open list
+//   unstore <word>           remove a word from the open list
+//   review                   next due word and its options, up to four
+//   answer <A-E> [y|n]       answer the word shown, y if it was
+//                            remembered; E stops the review
+//   add <list>, addAll, addMistakes, clear, remove <list>
+//                            change the review list
+//   delete <list>            delete a list
+//   find <query>             search every list
+//   quit                     save everything; the next command opens
+//                            the directory again as a new session
+// Commands can be logged as one JSON array per line, like journal
+// records, and a log can be replayed at full speed with replay().
+// The latency of every command goes into getMetrics() as
+// "command.<name>"
+public class CommandEngine implements Closeable {
+
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+    private static final Set<String> COMMANDS = new HashSet<>(Arrays.asList("open", "store", "unstore",
+            "review", "answer", "add", "addAll", "addMistakes", "clear", "remove", "delete", "find", "quit"));
+
+    // What a command did
+    public static class Result {
+        public final String command;
+        // Why the command failed, null if it did not
+        public final String error;
+        public final Map<String, Object> values;
+
+        Result(String command, String error, Map<String, Object> values) {
+            this.command = command;
+            this.error = error;
+            this.values = values;
+        }
+
+        public boolean ok() {
+            return error == null;
+        }
+
+        public Object get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public String toString() {
+            return ok() ? command + " " + values : command + " failed: " + error;
+        }
+    }
+
+    // Thrown by a command that cannot run
+    private static class BadCommand extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadCommand(String message) {
+            super(message);
+        }
+    }
+
+    // Opens the memorizer of a new session
+    private final Supplier<Memorizer> opener;
+    private final Metrics metrics = new Metrics();
+    private final Gson gson = new Gson();
+    private Memorizer memo;
+    // Where executed commands are logged, null for nowhere
+    private Writer log;
+    // List the pairs are stored into, null before open
+    private String list;
+
+    // Words due when the review started, the next one to show
+    // and the words answered so far; due is null between reviews
+    private List<String> due;
+    private int next;
+    private final Set<String> reviewed = new HashSet<>();
+    private DistractorSampler sampler;
+    // Question waiting for an answer, null if none
+    private String word;
+    private List<String> options;
+    private long shownAt;
+
+    // Engine over the memorizer of dirPath, which is opened on first
+    // use; watchDirectory is passed on to the memorizer
+    public CommandEngine(String dirPath, boolean watchDirectory) {
+        this(() -> new Memorizer(dirPath, watchDirectory));
+    }
+
+    // Engine over the memorizers opener returns, one per session
+    public CommandEngine(Supplier<Memorizer> opener) {
+        this.opener = opener;
+    }
+
+    // Memorizer of the current session, opening it if needed
+    public Memorizer getMemorizer() {
+        if (memo == null) {
+            memo = opener.get();
+        }
+        return memo;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Log every command executed from now on into log
+    public void setLog(Writer log) {
+        this.log = log;
+    }
+
+    // Run one command
+    public Result execute(String... command) {
+        if (command.length == 0) {
+            return new Result("", "Empty command", Collections.emptyMap());
+        }
+        String name = command[0];
+        Map<String, Object> values = new LinkedHashMap<>();
+        String error = null;
+        if (!COMMANDS.contains(name)) {
+            error = "Unknown command: " + name;
+            metrics.add("command.errors", 1);
+        } else {
+            try (Metrics.Sample sample = metrics.start("command." + name)) {
+                // The list or word the command is about, if any
+                sample.target(command.length > 1 ? command[1] : "");
+                run(name, command, values);
+            } catch (BadCommand e) {
+                error = e.getMessage();
+                metrics.add("command.errors", 1);
+            } catch (RuntimeException e) {
+                // A bug in a command must not end the session; the
+                // caller gets an error like for any bad command
+                e.printStackTrace();
+                error = "Failed: " + e;
+                metrics.add("command.errors", 1);
+            }
+        }
+        if (log != null) {
+            try {
+                log.write(gson.toJson(command));
+                log.write('\n');
+                log.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new Result(name, error, values);
+    }
+
+    // Run every command of a log; lines that are not commands are
+    // skipped. Returns the number of commands run
+    public long replay(Reader in) throws IOException {
+        BufferedReader lines = new BufferedReader(in, 1 << 16);
+        long ret = 0;
+        for (String line; (line = lines.readLine()) != null; ) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] command;
+            try {
+                command = gson.fromJson(line, String[].class);
+            } catch (JsonParseException e) {
+                metrics.add("command.skipped", 1);
+                continue;
+            }
+            if (command != null) {
+                execute(command);
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    // Save a session that was not quit
+    @Override
+    public void close() {
+        if (memo != null) {
+            execute("quit");
+        }
+    }
+
+    private void run(String name, String[] command, Map<String, Object> values) throws BadCommand {
+        getMemorizer();
+        switch (name) {
+            case "open":
+                list = argument(command, 1);
+                memo.initStorage(list);
+                values.put("list", list);
+                break;
+            case "store":
+                if (list == null) {
+                    throw new BadCommand("No list is open");
+                }
+                String stored = argument(command, 1).trim();
+                memo.store(stored, argument(command, 2).trim());
+                memo.incrementMemoCount();
+                values.put("stored", stored);
+                values.put("memoCount", memo.getMemoCount());
+                break;
+            case "unstore":
+                unstore(argument(command, 1), values);
+                break;
+            case "review":
+                review(values);
+                break;
+            case "answer":
+                answer(argument(command, 1).toUpperCase(), command.length < 3 || !command[2].equalsIgnoreCase("n"),
+                        values);
+                break;
+            case "add":
+                memo.addToReview(argument(command, 1));
+                values.put("reviewSize", memo.reviewSize());
+                break;
+            case "addAll":
+                memo.addAllToReview();
+                values.put("reviewSize", memo.reviewSize());
+                break;
+            case "addMistakes":
+                memo.addMisToReview();
+                values.put("reviewSize", memo.reviewSize());
+                break;
+            case "clear":
+                memo.clearReviewed();
+                dropRemovedWords();
+                values.put("reviewSize", 0);
+                break;
+            case "remove":
+                memo.deleteFromReview(argument(command, 1));
+                dropRemovedWords();
+                values.put("reviewSize", memo.reviewSize());
+                break;
+            case "delete":
+                memo.deleteList(argument(command, 1));
+                values.put("deleted", command[1]);
+                break;
+            case "find":
+                find(argument(command, 1).trim(), values);
+                break;
+            case "quit":
+                quit(values);
+                break;
+        }
+    }
+
+    private void unstore(String removed, Map<String, Object> values) throws BadCommand {
+        if (list == null) {
+            throw new BadCommand("No list is open");
+        }
+        boolean found = memo.removeStored(removed);
+        values.put("removed", found);
+        if (!found) {
+            // The word of the open list they may have meant
+            for (SearchIndex.Match match: memo.searchIndex().fuzzy(removed, 2, Memorizer.SEARCH_RESULTS)) {
+                if (match.lists.contains(list)) {
+                    values.put("suggestion", match.word);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Show the next due word, starting a review if none is running;
+    // when every due word has been shown the review ends
+    private void review(Map<String, Object> values) {
+        if (due == null) {
+            memo.trackReview();
+            due = memo.dueWords(Integer.MAX_VALUE);
+            // Collecting the meanings costs as much as the review list
+            // is long, which is wasted when nothing is due
+            sampler = due.isEmpty() ? null : memo.newSampler(Memorizer.newRandom());
+            next = 0;
+            reviewed.clear();
+            values.put("nothingDue", due.isEmpty() && memo.reviewSize() > 0);
+        }
+        if (word == null && next < due.size()) {
+            word = due.get(next++);
+            options = Memorizer.pickMeaning(sampler, memo.reviewMeaning(word));
+            shownAt = System.nanoTime();
+        }
+        if (word == null) {
+            endReview(values);
+            return;
+        }
+        values.put("word", word);
+        values.put("options", options);
+        values.put("left", due.size() - next);
+    }
+
+    private void answer(String choice, boolean remembered, Map<String, Object> values) throws BadCommand {
+        if (word == null) {
+            throw new BadCommand("No question to answer, review first");
+        }
+        int picked = Arrays.asList(LETTERS).indexOf(choice);
+        boolean stop = choice.equals("E");
+        if (!stop && (picked < 0 || picked >= options.size())) {
+            throw new BadCommand("Answer must be one of the "
+                    + String.join(", ", Arrays.asList(LETTERS).subList(0, options.size())) + " options or E");
+        }
+        // Nothing changes until the choice and the word are known good
+        String meaning = memo.reviewMeaning(word);
+        if (meaning == null) {
+            String removed = word;
+            word = null;
+            throw new BadCommand(removed + " is no longer in the review list, review again");
+        }
+        if (!remembered) {
+            memo.addToMis(word, meaning);
+        }
+        if (stop) {
+            word = null;
+            values.put("stopped", true);
+            endReview(values);
+            return;
+        }
+        int correctIndex = options.indexOf(meaning);
+        boolean correct = picked == correctIndex;
+        memo.gradeAnswer(word, meaning, options.get(picked), remembered, correct, shownAt);
+        memo.incrementMemoCount();
+        reviewed.add(word);
+        values.put("correct", correct);
+        values.put("answer", LETTERS[correctIndex]);
+        values.put("word", word);
+        values.put("meaning", meaning);
+        word = null;
+    }
+
+    // Report how the review went; the words answered stay in the
+    // review list and come back when the schedule makes them due
+    private void endReview(Map<String, Object> values) {
+        values.put("word", null);
+        values.put("reviewed", reviewed.size());
+        values.put("finished", reviewed.size() == due.size());
+        values.put("memoCount", memo.getMemoCount());
+        reviewed.clear();
+        due = null;
+        word = null;
+        sampler = null;
+    }
+
+    // Take the words no longer in the review list out of the review
+    // running, including the question waiting for an answer
+    private void dropRemovedWords() {
+        if (due == null) {
+            return;
+        }
+        if (word != null && memo.reviewMeaning(word) == null) {
+            word = null;
+        }
+        // Words answered so far stay, so the review still counts them
+        List<String> kept = new ArrayList<>(due.size());
+        for (String answered: due.subList(0, next)) {
+            if (reviewed.contains(answered) || answered.equals(word)) {
+                kept.add(answered);
+            }
+        }
+        int shown = kept.size();
+        for (String left: due.subList(next, due.size())) {
+            if (memo.reviewMeaning(left) != null) {
+                kept.add(left);
+            }
+        }
+        due = kept;
+        next = shown;
+    }
+
+    private void find(String query, Map<String, Object> values) {
+        SearchIndex index = memo.searchIndex();
+        List<SearchIndex.Match> found = index.prefix(query, Memorizer.SEARCH_RESULTS);
+        values.put("fuzzy", found.isEmpty());
+        if (found.isEmpty()) {
+            found = index.fuzzy(query, 2, Memorizer.SEARCH_RESULTS);
+        }
+        values.put("matches", found);
+        values.put("byMeaning", index.byMeaning(query, Memorizer.SEARCH_RESULTS));
+    }
+
+    private void quit(Map<String, Object> values) {
+        if (due != null) {
+            endReview(new HashMap<>());
+        }
+        memo.quit();
+        memo.close();
+        values.put("memoCount", memo.getMemoCount());
+        values.put("totalCount", memo.getTotalCount());
+        memo = null;
+        list = null;
+    }
+
+    private static String argument(String[] command, int i) throws BadCommand {
+        if (command.length <= i || command[i] == null) {
+            throw new BadCommand(command[0] + " needs " + i + " argument" + (i > 1 ? "s" : ""));
+        }
+        return command[i];
+    }
+}
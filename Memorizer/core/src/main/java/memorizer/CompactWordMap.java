@@ -0,0 +1,363 @@
+package memorizer;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// Map from word to meaning that keeps only the IDs of both strings,
+// which live in a shared WordStore.
+// Entries sit in two parallel int arrays with linear probing; copying
+// pairs between maps of the same store moves ints and never touches
+// the strings. Strings are decoded only when they are read.
+// Serializes through Gson like any other Map
+public class CompactWordMap extends AbstractMap<String, String> implements WordIdMap {
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private final WordStore store;
+    // word id + 1, or EMPTY / DELETED
+    private int[] keys;
+    private int[] values;
+    private int size;
+    // Slots that are not EMPTY, deleted ones included
+    private int occupied;
+    private int modCount;
+    private final boolean readOnly;
+
+    public CompactWordMap(WordStore store) {
+        this(store, 16);
+    }
+
+    public CompactWordMap(WordStore store, int expectedSize) {
+        this.store = store;
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        readOnly = false;
+    }
+
+    // Copy of other sharing its store
+    public CompactWordMap(CompactWordMap other) {
+        this(other, false);
+    }
+
+    // Copy of other, or a read-only view sharing its arrays
+    private CompactWordMap(CompactWordMap other, boolean readOnly) {
+        store = other.store;
+        keys = readOnly ? other.keys : other.keys.clone();
+        values = readOnly ? other.values : other.values.clone();
+        size = other.size;
+        occupied = other.occupied;
+        this.readOnly = readOnly;
+    }
+
+    // View of this map that throws on any change
+    // This map must not change any more either
+    public CompactWordMap readOnlyView() {
+        return new CompactWordMap(this, true);
+    }
+
+    // Store the strings of this map live in
+    @Override
+    public WordStore getStore() {
+        return store;
+    }
+
+    // Bytes held by the map itself; the strings are in the store
+    public long footprint() {
+        return 8L * keys.length + 64;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && find(store.lookup((String) key)) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = find(store.lookup((String) key));
+        return slot < 0 ? null : store.get(values[slot]);
+    }
+
+    @Override
+    public String put(String word, String meaning) {
+        int old = putIds(store.intern(word), store.intern(meaning));
+        return old < 0 ? null : store.get(old);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> other) {
+        if (other instanceof CompactWordMap && ((CompactWordMap) other).store == store) {
+            CompactWordMap compact = (CompactWordMap) other;
+            for (int i = 0; i < compact.keys.length; i++) {
+                if (compact.keys[i] > 0) {
+                    putIds(compact.keys[i] - 1, compact.values[i]);
+                }
+            }
+            return;
+        }
+        super.putAll(other);
+    }
+
+    // Receives the pairs of a map as IDs
+    interface IdPairs {
+        void accept(int word, int meaning);
+    }
+
+    // Call action with the IDs of every pair
+    void forEachIds(IdPairs action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] > 0) {
+                action.accept(keys[i] - 1, values[i]);
+            }
+        }
+    }
+
+    @Override
+    public int putId(int word, int meaning) {
+        return putIds(word, meaning);
+    }
+
+    @Override
+    public void removeIdsIf(IntPredicate word) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] > 0 && word.test(keys[i] - 1)) {
+                removeSlot(i);
+            }
+        }
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = find(store.lookup((String) key));
+        if (slot < 0) {
+            return null;
+        }
+        int old = values[slot];
+        removeSlot(slot);
+        return store.get(old);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        occupied = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new SlotIterator<Entry<String, String>>() {
+                    @Override
+                    Entry<String, String> at(int slot) {
+                        return new SimpleImmutableEntry<>(store.get(keys[slot] - 1), store.get(values[slot]));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return CompactWordMap.this.remove(o) != null;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new SlotIterator<String>() {
+                    @Override
+                    String at(int slot) {
+                        return store.get(keys[slot] - 1);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Collection<String> values() {
+        return new AbstractCollection<String>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new SlotIterator<String>() {
+                    @Override
+                    String at(int slot) {
+                        return store.get(values[slot]);
+                    }
+                };
+            }
+        };
+    }
+
+    // Insert or replace a pair by IDs
+    // Return the previous meaning id, or -1
+    private int putIds(int word, int meaning) {
+        checkWritable();
+        int mask = keys.length - 1;
+        int slot = WordStore.mix(word) & mask;
+        int firstDeleted = -1;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == word + 1) {
+                int old = values[slot];
+                values[slot] = meaning;
+                return old;
+            }
+            if (keys[slot] == DELETED && firstDeleted < 0) {
+                firstDeleted = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (firstDeleted >= 0) {
+            slot = firstDeleted;
+        } else {
+            occupied++;
+        }
+        keys[slot] = word + 1;
+        values[slot] = meaning;
+        size++;
+        modCount++;
+        if (occupied * 4 > keys.length * 3) {
+            resize(size * 4 > keys.length ? keys.length * 2 : keys.length);
+        }
+        return -1;
+    }
+
+    // Slot holding word id, or -1
+    private int find(int word) {
+        if (word < 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int slot = WordStore.mix(word) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == word + 1) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeSlot(int slot) {
+        checkWritable();
+        keys[slot] = DELETED;
+        size--;
+        modCount++;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Read-only word map");
+        }
+    }
+
+    // Rebuild the table, dropping deleted slots
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] > 0) {
+                int slot = WordStore.mix(oldKeys[i] - 1) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+        occupied = size;
+    }
+
+    // Walks the live slots; supports remove()
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private int next = advance(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+        private final int[] table = keys;
+
+        abstract T at(int slot);
+
+        @Override
+        public boolean hasNext() {
+            return next < table.length;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount || table != keys) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= table.length) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return at(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+
+        private int advance(int from) {
+            while (from < keys.length && keys[from] <= 0) {
+                from++;
+            }
+            return from;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package memorizer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory catalog of the word lists in a directory.
+// The directory is scanned once; after that the catalog is kept current
+// by our own writes and by a WatchService, so looking a list up is a
+// case-insensitive hash lookup instead of a dir.list() scan
+public class DirectoryCatalog implements Closeable {
+
+    // Extension of a list stored as gzip-compressed JSON
+    public static final String GZIP_EXTENSION = ".json.gz";
+
+    // What the catalog knows about one list
+    public static class Entry {
+        // Name of the list as it is spelled on disk
+        public final String name;
+        public final boolean hasJson;
+        public final boolean hasBinary;
+        // Whether the binary file is at least as new as the JSON file
+        public final boolean binaryCurrent;
+        // Size and last modification time of the newest file of the list
+        public final long size;
+        public final long mtime;
+        // Number of pairs, or -1 if the list has not been loaded yet
+        public volatile int entryCount = -1;
+
+        Entry(String name, boolean hasJson, boolean hasBinary, boolean binaryCurrent, long size, long mtime) {
+            this.name = name;
+            this.hasJson = hasJson;
+            this.hasBinary = hasBinary;
+            this.binaryCurrent = binaryCurrent;
+            this.size = size;
+            this.mtime = mtime;
+        }
+    }
+
+    private final File dir;
+    // Replaced as a whole by rebuild, so readers never see it half full
+    private volatile Map<String, Entry> lists = new ConcurrentHashMap<>();
+    private WatchService watcher;
+    private Thread watchThread;
+
+    public DirectoryCatalog(File dir) {
+        this.dir = dir;
+        rebuild();
+    }
+
+    // Start following changes made to the directory by other programs
+    public void watch() {
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        watchThread = new Thread(this::watchLoop, "catalog-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    // Find a list by name, ignoring case
+    // Return null if there is no such list
+    public Entry get(String name) {
+        return lists.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Names of all lists, in alphabetical order
+    public List<String> names() {
+        List<String> ret = new ArrayList<>();
+        for (Entry entry: lists.values()) {
+            ret.add(entry.name);
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    // Remember how many pairs a list holds
+    public void setEntryCount(String name, int count) {
+        Entry entry = get(name);
+        if (entry != null) {
+            entry.entryCount = count;
+        }
+    }
+
+    // Re-read the files of one list after it has been
+    // written or deleted
+    public synchronized void refresh(String name) {
+        refresh(lists, name);
+    }
+
+    // Scan the directory again into a new map and swap it in;
+    // lookups keep using the old map until then
+    public synchronized void rebuild() {
+        Map<String, Entry> scanned = new ConcurrentHashMap<>();
+        String[] fileNames = dir.list();
+        if (fileNames != null) {
+            for (String fileName: fileNames) {
+                String name = listName(fileName);
+                if (name != null && !scanned.containsKey(name.toLowerCase(Locale.ROOT))) {
+                    refresh(scanned, name);
+                }
+            }
+        }
+        lists = scanned;
+    }
+
+    // Bring the entry of one list in target up to date with its files
+    private void refresh(Map<String, Entry> target, String name) {
+        File json = jsonFile(dir, name);
+        File binary = BinaryWordList.fileFor(dir, name);
+        boolean hasJson = json.isFile();
+        boolean hasBinary = binary.isFile();
+        String key = name.toLowerCase(Locale.ROOT);
+        if (!hasJson && !hasBinary) {
+            target.remove(key);
+            return;
+        }
+        boolean binaryCurrent = hasBinary && (!hasJson || binary.lastModified() >= json.lastModified());
+        File newest = binaryCurrent ? binary : json;
+        // Keep the count learnt for unchanged files, also across a rebuild
+        Entry old = lists.get(key);
+        Entry entry = new Entry(name, hasJson, hasBinary, binaryCurrent, newest.length(), newest.lastModified());
+        if (old != null && old.size == entry.size && old.mtime == entry.mtime) {
+            entry.entryCount = old.entryCount;
+        }
+        target.put(key, entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    // Name of the list a file belongs to, or null
+    // if the file is not a word list
+    static String listName(String fileName) {
+        if (fileName.endsWith(GZIP_EXTENSION)) {
+            return fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+        }
+        if (fileName.endsWith(".json")) {
+            return fileName.substring(0, fileName.length() - 5);
+        }
+        if (fileName.endsWith(BinaryWordList.EXTENSION)) {
+            return fileName.substring(0, fileName.length() - BinaryWordList.EXTENSION.length());
+        }
+        return null;
+    }
+
+    // JSON snapshot of a list: <name>.json or <name>.json.gz,
+    // the newer one if both exist
+    public static File jsonFile(File dir, String list) {
+        File plain = new File(dir, list + ".json");
+        File compressed = new File(dir, list + GZIP_EXTENSION);
+        if (!compressed.isFile()) {
+            return plain;
+        }
+        return plain.isFile() && plain.lastModified() > compressed.lastModified() ? plain : compressed;
+    }
+
+    // Changes whenever the JSON, binary or journal file of list changes
+    public static long signature(File dir, String list) {
+        long ret = 17;
+        for (File file: new File[] {new File(dir, list + ".json"), new File(dir, list + GZIP_EXTENSION),
+                BinaryWordList.fileFor(dir, list), WordJournal.fileFor(dir, list)}) {
+            ret = ret * 31 + file.length();
+            ret = ret * 31 + file.lastModified();
+        }
+        return ret == 0 ? 1 : ret;
+    }
+
+    private void watchLoop() {
+        WatchService service = watcher;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event: key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rebuild();
+                        continue;
+                    }
+                    String name = listName(event.context().toString());
+                    if (name != null) {
+                        refresh(name);
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Catalog closed
+        }
+    }
+}
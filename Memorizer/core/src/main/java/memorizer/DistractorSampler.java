@@ -0,0 +1,91 @@
+package memorizer;
+
+import java.util.*;
+
+// Picks the wrong options of a multiple-choice question.
+// The distinct meanings of the review list are collected once per
+// review session. With a NearMissIndex, each question first takes the
+// meanings most like the right one that are still among those
+// meanings; the rest are drawn with a partial
+// Fisher-Yates shuffle, which costs O(k) and never retries
+public class DistractorSampler {
+
+    // Distinct meanings, permuted in place by sample
+    private final String[] meanings;
+    // Where each meaning currently sits in meanings
+    private final Map<String, Integer> position;
+    private final Random random;
+    // Meanings like the right one, null to draw every distractor at random
+    private final NearMissIndex nearMisses;
+
+    public DistractorSampler(Collection<String> allMeanings, Random random) {
+        this(allMeanings, random, null);
+    }
+
+    public DistractorSampler(Collection<String> allMeanings, Random random, NearMissIndex nearMisses) {
+        Set<String> distinct = new LinkedHashSet<>(allMeanings);
+        meanings = distinct.toArray(new String[0]);
+        position = new HashMap<>(meanings.length * 4 / 3 + 1);
+        for (int i = 0; i < meanings.length; i++) {
+            position.put(meanings[i], i);
+        }
+        this.random = random;
+        this.nearMisses = nearMisses;
+    }
+
+    // Random generator used by this sampler
+    public Random getRandom() {
+        return random;
+    }
+
+    // Number of distinct meanings to draw from
+    public int size() {
+        return meanings.length;
+    }
+
+    // Draw k distinct meanings other than correct; fewer if there
+    // are not that many, since a repeated option could not be told
+    // apart from the right one
+    public List<String> sample(String correct, int k) {
+        List<String> ret = new ArrayList<>(k);
+        // Park the correct meaning at the end so it is never drawn
+        int n = park(correct, meanings.length);
+        if (nearMisses != null) {
+            // The index keeps meanings that have left the review list
+            // since; only those still among the meanings are taken
+            for (String near: nearMisses.nearest(correct, k, position::containsKey)) {
+                // Near misses are parked too, so the draw below cannot repeat them
+                ret.add(near);
+                n = park(near, n);
+            }
+        }
+        int distinct = Math.min(k - ret.size(), n);
+        for (int i = 0; i < distinct; i++) {
+            swap(i, i + random.nextInt(n - i));
+            ret.add(meanings[i]);
+        }
+        return ret;
+    }
+
+    // Move meaning behind the first n - 1 meanings, if it is among
+    // the first n, and return how many meanings are left to draw from
+    private int park(String meaning, int n) {
+        Integer at = position.get(meaning);
+        if (at == null || at >= n) {
+            return n;
+        }
+        swap(at, n - 1);
+        return n - 1;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        String tmp = meanings[i];
+        meanings[i] = meanings[j];
+        meanings[j] = tmp;
+        position.put(meanings[i], i);
+        position.put(meanings[j], j);
+    }
+}
@@ -0,0 +1,128 @@
+package memorizer;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Parsed word lists, so that reading the same list again costs no I/O.
+// Entries are keyed by the path of the list and remember the signature
+// (modification times and sizes) its files had when it was read; a list
+// whose files changed since is read again. The cache holds at most
+// capacity estimated bytes and evicts the least recently used lists
+// first. Cached maps are shared and read-only
+public class ListCache {
+
+    // One parsed list
+    public static class Entry {
+        public final String name;
+        public final CompactWordMap list;
+        // Journal records replayed when it was read
+        public final long replayed;
+        final long signature;
+        final long bytes;
+
+        Entry(String name, CompactWordMap list, long replayed, long signature, long bytes) {
+            this.name = name;
+            this.list = list;
+            this.replayed = replayed;
+            this.signature = signature;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long capacity;
+    private final Metrics metrics;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ListCache(long capacity, Metrics metrics) {
+        this.capacity = capacity;
+        this.metrics = metrics;
+    }
+
+    // List read from path into store while its files had signature,
+    // or null
+    public synchronized Entry get(String path, long signature, WordStore store) {
+        Entry entry = entries.get(path);
+        if (entry != null && (entry.signature != signature || entry.list.getStore() != store)) {
+            remove(path);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            metrics.add("listCache.misses", 1);
+        } else {
+            hits++;
+            metrics.add("listCache.hits", 1);
+        }
+        return entry;
+    }
+
+    // Remember list read from path; fileBytes is what reading it cost
+    // Return the cached entry
+    public synchronized Entry put(String path, long signature, String name, CompactWordMap list,
+                                  long replayed, long fileBytes) {
+        Entry entry = new Entry(name, list.readOnlyView(), replayed, signature, list.footprint() + fileBytes);
+        remove(path);
+        if (entry.bytes > capacity) {
+            return entry;
+        }
+        entries.put(path, entry);
+        bytes += entry.bytes;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > capacity) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+            metrics.add("listCache.evictions", 1);
+        }
+        return entry;
+    }
+
+    // Forget the list read from path, e.g. because it was rewritten
+    public synchronized void invalidate(String path) {
+        remove(path);
+    }
+
+    // Forget every list read from the directory dirPath, e.g.
+    // because the store its lists were read into is closed
+    public synchronized void invalidateUnder(String dirPath) {
+        String prefix = dirPath + File.separator;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                bytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Estimated bytes held
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void remove(String path) {
+        Entry old = entries.remove(path);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+    }
+}
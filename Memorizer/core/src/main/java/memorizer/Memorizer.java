@@ -0,0 +1,1824 @@
+package memorizer;
+
+import com.google.gson.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+// The class that handling processing,
+// storing word-meaning pairs
+// and format them into Json into a file
+// named by users
+public class Memorizer {
+
+    // This is the total since the user start using
+    private int totalCount;
+    // memoCount encourages user to memorize often
+    // this is a combination of words stored and reviewed
+    private int memoCount;
+    // All relative data including cache lists, stored pairs, etc would be stored
+    // under this path
+    private File dir;
+    private String dirPath;
+    // Words to be reviewed; use review(), which waits for it
+    // while it is still being loaded
+    private WordList toBeReviewed;
+    // Loads toBeReviewed in the background if memorizer.lazyReview
+    // is set, null once review() has waited for it
+    private CompletableFuture<Void> reviewLoad;
+    // Words to be stored
+    private WordList toBeStored;
+    // Indicate whether the dirPath is valid
+    private boolean isPathValid;
+    // Words that users have made mistakes on
+    private WordList mistakeList;
+    // When each review word is due again
+    private ReviewScheduler scheduler;
+    // Word lists in dir, kept current while we run
+    private DirectoryCatalog catalog;
+    // Journal of the changes made to toBeStored
+    private WordJournal journal;
+    // Pairs loaded and bytes read by deserialize
+    // since this memorizer was created
+    private long entriesLoaded;
+    private long bytesRead;
+    // Loads lists in parallel for addAllToReview,
+    // null when lists are loaded one after another
+    private ParallelListLoader loader;
+    // Journal records replayed by the last deserialize
+    private long lastReplayed;
+    // Journal records tolerated before compacting
+    // a list that is being opened
+    private static final int COMPACT_THRESHOLD = 4096;
+    private static final String COUNT_FILE = "count.txt";
+
+    // What reading one list cost
+    private static class LoadStats {
+        // Whether the list could not be read
+        boolean failed;
+        long entries;
+        long bytes;
+        long replayed;
+    }
+
+    // Timings and counters of this memorizer
+    private final Metrics metrics = new Metrics();
+    // Where close() dumps the metrics as JSON, null for nowhere
+    private File metricsFile;
+
+    // Every word and meaning held by the lists below, stored once
+    // loaded from words.store, so IDs stay the same across runs
+    private final WordStore store;
+    // Writes lists and the other files of dir in the background;
+    // may be shared with other memorizers, see writeKey
+    private final WriteBehindPersister persister;
+    // Whether persister and cache belong to this memorizer alone
+    private final boolean ownsShared;
+    // Generations of review.json and count.txt committed by quit()
+    private final StateManifest state;
+    // Files waiting to be written before submitting another one waits
+    private static final int PENDING_WRITES = 64;
+    // Search over the words of every list, null until first used
+    private SearchIndex index;
+    // Words shown for one search
+    static final int SEARCH_RESULTS = 10;
+    // Whether serialize writes gzip-compressed lists
+    private boolean compressed;
+    // Shards asked for the review list, 0 for a single review.json
+    // A directory whose review list is sharded already stays sharded
+    private final int reviewShards = Integer.getInteger("memorizer.reviewShards", 0);
+    // Share of the strings of words.store the review list must still
+    // use; below it quit() writes a new store with only those strings
+    private final double storeLiveRatio = Double.parseDouble(System.getProperty("memorizer.storeLiveRatio", "0.5"));
+    // Every answer given in reviews, null until first used
+    private AnswerHistory history;
+    // Meanings of the review list by similarity, for distractors that
+    // look like the right answer; built by the first review and kept
+    // up to date as lists are added, null before that or when
+    // memorizer.nearMisses is false
+    private NearMissIndex nearMisses;
+    private final boolean useNearMisses = Boolean.parseBoolean(System.getProperty("memorizer.nearMisses", "true"));
+    // Lists read before, so reading them again costs no I/O
+    private final ListCache cache;
+
+    // Wrapper class for deserializing a list of words
+    // and serializing the list of words
+    public static class WordList {
+        public String name = "";
+        public Map<String, String> list = new HashMap<>();
+    }
+
+    public Memorizer(String dirPath) {
+        this(dirPath, true);
+    }
+
+    // watchDirectory tells whether to follow changes made to the
+    // directory by other programs; a server that owns its user
+    // directories does not need to
+    public Memorizer(String dirPath, boolean watchDirectory) {
+        this(dirPath, watchDirectory, null, null);
+    }
+
+    // Same as above, writing through persister and caching lists in
+    // cache, both shared with other memorizers and left open by
+    // close(); null for ones of its own
+    public Memorizer(String dirPath, boolean watchDirectory, WriteBehindPersister persister, ListCache cache) {
+        memoCount = 0;
+        this.dirPath = dirPath;
+        ownsShared = persister == null;
+        this.persister = persister != null ? persister : newPersister(metrics);
+        this.cache = cache != null ? cache : newCache(metrics);
+        this.dir = new File(dirPath);
+        isPathValid = dir.isDirectory();
+        // Finish a quit cut short by a crash before anything is read
+        state = StateManifest.open(dir);
+        metrics.add("state.recovered", state.recover());
+        // Read now, or with a lazy review list by the background load
+        // below or whatever needs a string first
+        boolean lazyReview = Boolean.getBoolean("memorizer.lazyReview");
+        store = WordStore.loadLater(new File(dir, WordStore.FILE_NAME));
+        if (!lazyReview) {
+            loadWordStore();
+        }
+        // Scan the directory once, then follow its changes
+        catalog = new DirectoryCatalog(dir);
+        if (isPathValid && watchDirectory) {
+            catalog.watch();
+        }
+        // Keep writing lists the way the review list was written
+        // unless told otherwise
+        String compress = System.getProperty("memorizer.compress");
+        compressed = compress != null ? Boolean.parseBoolean(compress)
+                : WordListReader.isCompressed(DirectoryCatalog.jsonFile(dir, "review"))
+                || ShardedReviewList.isCompressed(dir);
+        // Handle finding review.json
+        // If not found, create one
+        if (lazyReview) {
+            // Show the menu now; only review commands wait for the list
+            // and only commands using words wait for the strings
+            reviewLoad = CompletableFuture.runAsync(() -> {
+                loadWordStore();
+                findReview();
+            });
+        } else {
+            findReview();
+        }
+        Long seed = Long.getLong("memorizer.seed");
+        scheduler = ReviewScheduler.load(dir, seed == null ? new Random() : new Random(seed));
+        setLoadParallelism(Integer.getInteger("memorizer.parallelism", 1));
+        // Initiate a new toBeStored wordList
+        toBeStored = newWordList("");
+        mistakeList = newReviewSet("");
+        totalCount = findTotalCount();
+    }
+
+    public int findTotalCount() {
+        Path countFile = countFile();
+        try (Metrics.Sample sample = metrics.start("findTotalCount")) {
+            if (Files.isRegularFile(countFile)) {
+                byte[] bytes = Files.readAllBytes(countFile);
+                sample.target(countFile.getFileName().toString()).bytes(bytes.length);
+                String count = new String(bytes, StandardCharsets.UTF_8).trim();
+                if (count.matches("-?\\d{1,9}")) {
+                    return Integer.parseInt(count);
+                }
+            }
+            // Missing or not a number: take the count of the last
+            // quit, and only start over if there never was one
+            StateManifest.Generation last = state.current();
+            int count = last == null ? 0 : last.totalCount;
+            if (last != null) {
+                metrics.add("state.countRestored", 1);
+            }
+            writeTotalCount(count);
+            return count;
+        } catch (Exception e) {
+            reportError("findTotalCount", e);
+        }
+        return 0;
+    }
+
+    public void writeTotalCount(int count) {
+        try {
+            AtomicFiles.write(countFile().toFile(), out -> writeCount(count, out));
+        } catch (Exception e) {
+            reportError("writeTotalCount", e);
+        }
+    }
+
+    private static void writeCount(int count, OutputStream out) throws IOException {
+        out.write(String.valueOf(count).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path countFile() {
+        return dir.toPath().resolve(COUNT_FILE);
+    }
+
+    // Read the strings of words.store, unless read already
+    private void loadWordStore() {
+        try (Metrics.Sample sample = metrics.start("loadWordStore")) {
+            store.preload();
+            sample.entries(store.size());
+        }
+    }
+
+    // The review list, waiting for it if it is still being loaded
+    private WordList review() {
+        if (reviewLoad != null) {
+            try {
+                metrics.time("awaitReview", reviewLoad::join);
+            } catch (CompletionException e) {
+                reportError("findReview", e);
+                toBeReviewed = newReviewList();
+            }
+            reviewLoad = null;
+        }
+        return toBeReviewed;
+    }
+
+    public boolean isValid() {
+        return isPathValid;
+    }
+
+    // Add to mistake list
+    public void addToMis(String word, String meaning) {
+        mistakeList.list.put(word, meaning);
+    }
+
+    // Make the words of the review list never reviewed before due
+    public void trackReview() {
+        scheduler.track(review().list.keySet(), System.currentTimeMillis());
+    }
+
+    // Distractors drawn from the meanings of the review list
+    public DistractorSampler newSampler(Random random) {
+        if (useNearMisses && nearMisses == null) {
+            try (Metrics.Sample sample = metrics.start("buildNearMisses")) {
+                nearMisses = new NearMissIndex(store);
+                nearMisses.addAll(review().list.values());
+                sample.entries(nearMisses.size());
+            }
+        }
+        return new DistractorSampler(review().list.values(), random, nearMisses);
+    }
+
+    // Index meanings that joined the review list
+    private void addNearMisses(Collection<String> meanings) {
+        if (nearMisses != null) {
+            nearMisses.addAll(meanings);
+        }
+    }
+
+    // Up to n words of the review list that are due now
+    public List<String> dueWords(int n) {
+        return scheduler.nextDue(n, System.currentTimeMillis(), review().list);
+    }
+
+    // Number of words in the review list
+    public int reviewSize() {
+        return review().list.size();
+    }
+
+    // Meaning of a word in the review list, or null
+    public String reviewMeaning(String word) {
+        return review().list.get(word);
+    }
+
+    // Record how the user did on a reviewed word shown at
+    // shownAt (System.nanoTime): whether they remembered it,
+    // which meaning they picked and whether it was the right
+    // one, and schedule its next review
+    public void gradeAnswer(String word, String meaning, String picked, boolean remembered,
+                            boolean correct, long shownAt) {
+        int latencyMillis = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - shownAt) / 1_000_000);
+        metrics.question(word, remembered, correct, shownAt);
+        try {
+            AnswerHistory answers = answerHistory();
+            answers.record(word, picked, System.currentTimeMillis(), remembered, correct, latencyMillis);
+            answers.flush();
+        } catch (Exception e) {
+            reportError("answerHistory", e);
+        }
+        if (!correct) {
+            addToMis(word, meaning);
+        }
+        int quality;
+        if (correct) {
+            quality = remembered ? 5 : 3;
+        } else {
+            quality = remembered ? 1 : 0;
+        }
+        scheduler.grade(word, quality, System.currentTimeMillis());
+    }
+
+    // Add mistake list to review list
+    // Unless the review list is sharded, both are sets
+    // over the same store, so this is a bitmap union
+    public void addMisToReview() {
+        addNearMisses(mistakeList.list.values());
+        review().list.putAll(mistakeList.list);
+        mistakeList.list.clear();
+    }
+
+    //Return totalCount to the caller
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+
+    // Return the number of pairs loaded from disk to the caller
+    public long getEntriesLoaded() {
+        return entriesLoaded;
+    }
+
+    // Return the number of bytes read from disk to the caller
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    // Return the metrics of this memorizer to the caller
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Return the cache of parsed lists to the caller
+    public ListCache getListCache() {
+        return cache;
+    }
+
+    // Dump the metrics as JSON into file on close, once the
+    // background writes of quit have been timed too
+    // null turns the dump off
+    public void setMetricsFile(File file) {
+        metricsFile = file;
+    }
+
+    // Write lists as <name>.json.gz instead of <name>.json from now on
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    // Count a failed operation and show what went wrong
+    private void reportError(String operation, Exception e) {
+        metrics.add("errors." + operation, 1);
+        e.printStackTrace();
+    }
+
+    // Set how many threads addAllToReview uses to load lists
+    // 1 or less loads them one after another
+    public void setLoadParallelism(int parallelism) {
+        if (loader != null) {
+            loader.shutdown();
+            loader = null;
+        }
+        if (parallelism > 1) {
+            loader = new ParallelListLoader(parallelism);
+        }
+    }
+
+    // Return memoCount to the caller
+    public int getMemoCount() {
+        return memoCount;
+    }
+
+    // Increment the memo count,
+    // so user can get reward after
+    // finishing a lot of memorizing
+    public void incrementMemoCount() {
+        memoCount++;
+    }
+
+
+    // Empty list whose pairs live in store
+    WordList newWordList(String name) {
+        WordList ret = new WordList();
+        ret.name = name;
+        ret.list = new CompactWordMap(store);
+        return ret;
+    }
+
+    // Empty review or mistake set
+    private WordList newReviewSet(String name) {
+        WordList ret = new WordList();
+        ret.name = name;
+        ret.list = new ReviewSet(store);
+        return ret;
+    }
+
+    // Helper method for creating file
+    // and return the file back to the caller
+    private File CreateFile(String fileName) {
+        File newFile = new File(dirPath, fileName);
+        try {
+            if (newFile.createNewFile()) {
+                System.out.println("New word list created successfully: " + fileName);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return newFile;
+    }
+
+    // Initialize a container for storage if
+    // given name is different, and we need to
+    // serialize the previous container
+    public void initStorage(String fileName) {
+        if (!toBeStored.name.equals(fileName)) {
+            closeJournal();
+            toBeStored = deserialize(fileName + ".json", new CompactWordMap(store));
+            journal = new WordJournal(dir, fileName);
+            journal.setSize(lastReplayed);
+            // A torn journal is folded into <name>.json before anything
+            // is appended after its torn record; a long journal, or one
+            // without snapshot, can be folded in the background
+            if (WordJournal.isTorn(WordJournal.fileFor(dir, fileName))) {
+                try {
+                    if (serialize(toBeStored)) {
+                        journal.reset();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            } else if (!DirectoryCatalog.jsonFile(dir, fileName).exists()
+                    || journal.size() > Math.max(COMPACT_THRESHOLD, toBeStored.list.size())) {
+                compact();
+            }
+        }
+    }
+
+    // Store a pair into current storage
+    // word and meaning should not be null
+    public void store(String word, String meaning) {
+        if (word == null || meaning == null) {
+            return;
+        }
+        toBeStored.list.put(word, meaning);
+        if (index != null) {
+            index.put(toBeStored.name, word, meaning);
+        }
+        try {
+            if (journal != null) {
+                journal.appendPut(word, meaning);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Remove a word from current storage
+    // Return whether the word was there
+    public boolean removeStored(String word) {
+        if (toBeStored.list.remove(word) == null) {
+            return false;
+        }
+        if (index != null) {
+            index.remove(toBeStored.name, word);
+        }
+        try {
+            if (journal != null) {
+                journal.appendRemove(word);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return true;
+    }
+
+    // Import a TSV, CSV or "word: meaning" file into a list
+    // and write the list once at the end
+    public BulkImporter.Result importFile(File source, String listName, BulkImporter.Format format,
+                                          BulkImporter.DuplicatePolicy policy) throws IOException {
+        boolean current = listName.equals(toBeStored.name);
+        WordList target = current ? toBeStored : deserialize(listName + ".json", new CompactWordMap(store));
+        BulkImporter.Result result;
+        try (Metrics.Sample sample = metrics.start("import").target(source.getName())) {
+            result = new BulkImporter(format, policy).run(source, target.list);
+            sample.bytes(source.length()).entries(result.imported);
+        }
+        if (current) {
+            compact();
+        } else {
+            // The journal, if any, has been replayed into target; it is
+            // kept, with the pairs it holds, if the list was not written
+            if (!serialize(target)) {
+                throw new IOException("Could not write " + listName + ", the pairs were not imported");
+            }
+            new WordJournal(dir, listName).reset();
+        }
+        if (index != null) {
+            index.replaceList(listName, target.list);
+        }
+        memoCount += result.imported;
+        return result;
+    }
+
+    // Rewrite every list as <name>.json.gz, or back as <name>.json,
+    // and write lists that way from now on
+    // Return what the lists cost on disk and to load before and after
+    public String convertLists(boolean compressed) throws IOException {
+        flushWrites();
+        setCompressed(compressed);
+        int converted = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        long nanosBefore = 0;
+        long nanosAfter = 0;
+        for (String name: catalog.names()) {
+            File old = DirectoryCatalog.jsonFile(dir, name);
+            if (!old.isFile() || WordListReader.isCompressed(old) == compressed) {
+                continue;
+            }
+            long start = System.nanoTime();
+            WordList list = new WordListReader().read(old, new CompactWordMap(store));
+            nanosBefore += System.nanoTime() - start;
+            boolean current = name.equals(toBeStored.name);
+            if (current) {
+                toBeStored.list.putAll(list.list);
+                list = toBeStored;
+            } else {
+                WordJournal.replay(WordJournal.fileFor(dir, name), list.list);
+            }
+            list.name = name;
+            bytesBefore += old.length();
+            if (!serialize(list)) {
+                continue;
+            }
+            if (current) {
+                journal.reset();
+            } else {
+                new WordJournal(dir, name).reset();
+            }
+            File written = DirectoryCatalog.jsonFile(dir, name);
+            start = System.nanoTime();
+            new WordListReader().read(written, new CompactWordMap(store));
+            nanosAfter += System.nanoTime() - start;
+            bytesAfter += written.length();
+            converted++;
+        }
+        if (review().list instanceof ShardedReviewList) {
+            ((ShardedReviewList) review().list).markAllDirty();
+            saveReviewShards();
+        }
+        return String.format("%d lists: %d bytes -> %d bytes on disk, loading %.1f ms -> %.1f ms",
+                converted, bytesBefore, bytesAfter, nanosBefore / 1e6, nanosAfter / 1e6);
+    }
+
+    // Answers given in reviews, opened on first use
+    public AnswerHistory answerHistory() throws IOException {
+        if (history == null) {
+            history = new AnswerHistory(dir);
+        }
+        return history;
+    }
+
+    // Accuracy of the answers about the words of each list
+    // The words of each list come from the search index, which
+    // only reads lists that changed since it was saved
+    public List<AnswerHistory.Accuracy> accuracyPerList() throws IOException {
+        AnswerHistory answers = answerHistory();
+        SearchIndex words = searchIndex();
+        List<AnswerHistory.Accuracy> ret = new ArrayList<>();
+        List<String> names = new ArrayList<>(words.indexedLists());
+        Collections.sort(names);
+        for (String name: names) {
+            AnswerHistory.Accuracy accuracy = answers.accuracy(name, words.wordsOf(name));
+            if (accuracy.answers > 0) {
+                ret.add(accuracy);
+            }
+        }
+        return ret;
+    }
+
+    // Search index over every list
+    // Loaded on first use; lists changed since it was saved
+    // are read and indexed again
+    public SearchIndex searchIndex() {
+        if (index == null) {
+            try (Metrics.Sample sample = metrics.start("searchIndex")) {
+                // Lists waiting to be written are not in the catalog yet
+                flushWrites();
+                index = SearchIndex.load(new File(dir, SearchIndex.FILE_NAME));
+                syncIndex();
+                sample.entries(index.size());
+            }
+        }
+        return index;
+    }
+
+    // Bring the index up to date with the lists in dir
+    private void syncIndex() {
+        List<String> names = catalog.names();
+        names.remove("review");
+        if (!toBeStored.name.equals("") && !names.contains(toBeStored.name)) {
+            names.add(toBeStored.name);
+        }
+        for (String name: index.indexedLists()) {
+            if (!names.contains(name)) {
+                index.removeList(name);
+            }
+        }
+        for (String name: names) {
+            if (index.signatureOf(name) != DirectoryCatalog.signature(dir, name)) {
+                WordList list = name.equals(toBeStored.name) ? toBeStored : deserialize(name + ".json");
+                index.replaceList(name, list.list);
+                index.setSignature(name, DirectoryCatalog.signature(dir, name));
+            }
+        }
+    }
+
+    // Write the current storage into its snapshot
+    // and empty its journal, in the background
+    // The journal is only emptied if nothing was appended to it
+    // after the snapshot was taken; otherwise it is replayed on top
+    // of the snapshot, which gives the same list
+    private void compact() {
+        if (toBeStored.name.equals("")) {
+            return;
+        }
+        WordList snapshot = snapshotOf(toBeStored);
+        WordJournal compacted = journal;
+        long records = journal == null ? 0 : journal.size();
+        persister.submit(writeKey(snapshot.name), () -> {
+            try {
+                if (serialize(snapshot) && compacted != null) {
+                    compacted.resetIfSize(records);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Copy of list that later changes to list do not affect
+    private static WordList snapshotOf(WordList list) {
+        WordList ret = new WordList();
+        ret.name = list.name;
+        if (list.list instanceof ReviewSet) {
+            ret.list = ((ReviewSet) list.list).snapshot();
+        } else if (list.list instanceof CompactWordMap) {
+            ret.list = new CompactWordMap((CompactWordMap) list.list);
+        } else {
+            ret.list = new HashMap<>(list.list);
+        }
+        return ret;
+    }
+
+    // Close the journal of the current storage,
+    // forcing what was appended to disk
+    private void closeJournal() {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Helper method for finding reviewFile
+    private void findReview() {
+        metrics.time("findReview", this::findReviewUntimed);
+    }
+
+    private void findReviewUntimed() {
+        if (ShardedReviewList.exists(dir)) {
+            try {
+                toBeReviewed = new WordList();
+                toBeReviewed.name = "review";
+                toBeReviewed.list = ShardedReviewList.load(dir, store, metrics);
+                if (reviewShards > 0 && reviewShards != ((ShardedReviewList) toBeReviewed.list).shardCount()) {
+                    toBeReviewed.list = shardedCopy(toBeReviewed.list);
+                }
+                return;
+            } catch (Exception e) {
+                reportError("findReview", e);
+            }
+        }
+        DirectoryCatalog.Entry entry = catalog.get("review");
+        if (entry != null && entry.hasJson && reviewShards <= 0) {
+            // The bitmap saved with review.json, if it is still up to date
+            ReviewSet saved = ReviewSet.load(new File(dir, ReviewSet.FILE_NAME),
+                    DirectoryCatalog.signature(dir, entry.name), store);
+            if (saved != null) {
+                metrics.add("reviewBitmap.hits", 1);
+                toBeReviewed = new WordList();
+                toBeReviewed.name = entry.name;
+                toBeReviewed.list = saved;
+                return;
+            }
+            toBeReviewed = readReview(entry.name + ".json", new ReviewSet(store));
+            return;
+        }
+        if (entry != null && entry.hasJson) {
+            toBeReviewed = readReview(entry.name + ".json", new CompactWordMap(store));
+            if (reviewShards > 0) {
+                // Every shard is new, so quit() writes them all once
+                toBeReviewed.list = shardedCopy(toBeReviewed.list);
+            }
+            return;
+        }
+        // If reviewFile does not exist we need to
+        // Create one
+        toBeReviewed = newReviewList();
+        if (toBeReviewed.list instanceof ShardedReviewList) {
+            return;
+        }
+        System.out.println("First time using memorizer");
+        System.out.println("Creating review.json...");
+        System.out.println("This means you should not create any file that");
+        System.out.println("is named the same as review.json");
+        serialize(toBeReviewed);
+    }
+    // Same as deserialize, but leaves lastReplayed alone,
+    // since the review list may be loaded in the background
+    private WordList readReview(String file, Map<String, String> target) {
+        LoadStats stats = new LoadStats();
+        WordList ret = readList(file, stats, target);
+        String name = file.substring(0, file.indexOf("."));
+        if (stats.failed && state.restore(DirectoryCatalog.jsonFile(dir, name).getName()) != null) {
+            // Damaged, so read it as the quit before left it
+            metrics.add("state.reviewRestored", 1);
+            catalog.refresh(name);
+            target.clear();
+            stats = new LoadStats();
+            ret = readList(file, stats, target);
+        }
+        addLoadStats(stats);
+        return ret;
+    }
+
+    // Delete the specified file
+    public void deleteList(String file) {
+        DirectoryCatalog.Entry entry = findList(file);
+        if (entry != null) {
+            String name = entry.name;
+            // A pending write would bring the list back
+            persister.await(writeKey(name));
+            if (name.equals(toBeStored.name)) {
+                closeJournal();
+            }
+            WordJournal.fileFor(dir, name).delete();
+            cache.invalidate(new File(dirPath, name + ".json").getPath());
+            if (index != null) {
+                index.removeList(name);
+            }
+            boolean deleted = BinaryWordList.fileFor(dir, name).delete();
+            deleted = new File(dirPath, name + DirectoryCatalog.GZIP_EXTENSION).delete() || deleted;
+            if (new File(dirPath, name + ".json").delete() || deleted) {
+                System.out.println("List deleted successfully: " + name);
+            }
+            catalog.refresh(name);
+            return;
+        }
+        System.out.println("File does not exist>_<");
+        System.out.println();
+    }
+
+    // Delete list from review list if
+    // exists
+    public void deleteFromReview(String file) {
+        if (file.equals(toBeStored.name)) {
+            removeWords(toBeStored.list.keySet());
+            return;
+        }
+        DirectoryCatalog.Entry entry = findList(file);
+        if (entry != null) {
+            BinaryWordList binary = openBinary(entry);
+            if (binary != null) {
+                binary.removeAllFrom(review().list);
+                return;
+            }
+            removeWords(deserialize(entry.name + ".json").list.keySet());
+            return;
+        }
+        System.out.println("File does not exist>_<");
+        System.out.println();
+    }
+
+    // Remove a set of words from review list
+    // Reviewed words stay, the schedule decides when they are due
+    public void removeWords(Set<String> words) {
+        if (review().list instanceof ReviewSet) {
+            ((ReviewSet) review().list).removeAll(words);
+            return;
+        }
+        for (String word: words) {
+            review().list.remove(word);
+        }
+    }
+
+    // Clear toBeReviewed list
+    public void clearReviewed() {
+        // Rebuilt by the next review from what the list holds then
+        nearMisses = null;
+        if (review().list instanceof ShardedReviewList || review().list instanceof ReviewSet) {
+            // Keep the shards or the bitmap containers
+            review().list.clear();
+        } else {
+            toBeReviewed = newReviewList();
+        }
+    }
+
+    // Empty review list, sharded if shards were asked for
+    private WordList newReviewList() {
+        if (reviewShards <= 0) {
+            return newReviewSet("review");
+        }
+        WordList ret = new WordList();
+        ret.name = "review";
+        ret.list = new ShardedReviewList(store, reviewShards);
+        return ret;
+    }
+
+    // The pairs of list in a new sharded list of reviewShards shards
+    private Map<String, String> shardedCopy(Map<String, String> list) {
+        ShardedReviewList ret = new ShardedReviewList(store, reviewShards);
+        ret.putAll(list);
+        return ret;
+    }
+
+    // Commit review.json with count, then write the strings its IDs
+    // refer to and the bitmap, in the background; the bitmap is stamped
+    // with the signature of the review.json just written, so it is only
+    // used while review.json stays as it is
+    // Strings are never removed from the store, so once most of them
+    // are no longer in the review list, the list is moved to a new store
+    // of its own, which replaces words.store as a whole
+    private void saveReviewSet(int count) {
+        WordList snapshot = snapshotOf(review());
+        String name = snapshot.name;
+        ReviewSet set = (ReviewSet) snapshot.list;
+        if (set.liveStrings() < store.size() * storeLiveRatio) {
+            snapshot.list = set = set.compacted();
+            metrics.add("wordStore.compacted", store.size() - set.getStore().size());
+        }
+        WordStore saved = set.getStore();
+        commitState(snapshot, count);
+        persister.submit(writeKey(WordStore.FILE_NAME), () -> {
+            try (Metrics.Sample sample = metrics.start("saveWordStore")) {
+                saved.save(new File(dir, WordStore.FILE_NAME));
+                sample.entries(saved.size());
+            } catch (Exception e) {
+                reportError("saveWordStore", e);
+            }
+        });
+        persister.submit(writeKey(ReviewSet.FILE_NAME), () -> {
+            try (Metrics.Sample sample = metrics.start("saveReviewBitmap")) {
+                ((ReviewSet) snapshot.list).save(new File(dir, ReviewSet.FILE_NAME),
+                        DirectoryCatalog.signature(dir, name));
+                sample.entries(snapshot.list.size());
+            } catch (Exception e) {
+                reportError("saveReviewBitmap", e);
+            }
+        });
+    }
+
+    // Write the shards of the review list changed since they were
+    // last written, in the background
+    private void saveReviewShards() {
+        ShardedReviewList sharded = (ShardedReviewList) review().list;
+        metrics.add("reviewShard.dirty", sharded.dirtyCount());
+        for (Map.Entry<String, Runnable> write: sharded.takeWrites(dir, compressed, metrics).entrySet()) {
+            persister.submit(writeKey(write.getKey()), write.getValue());
+        }
+        if (DirectoryCatalog.jsonFile(dir, "review").exists()) {
+            // Replaced by the shards once they are written
+            persister.submit(writeKey("review"), () -> {
+                if (ShardedReviewList.exists(dir)) {
+                    new File(dirPath, "review.json").delete();
+                    new File(dirPath, "review" + DirectoryCatalog.GZIP_EXTENSION).delete();
+                    catalog.refresh("review");
+                }
+            });
+        }
+    }
+
+    // Add the specified list to review
+    // in addition to the words in the toBeReviewed
+    // file
+    public void addToReview(String file) {
+        // The open list holds words its file may not have yet
+        if (file.equals(toBeStored.name)) {
+            addNearMisses(toBeStored.list.values());
+            review().list.putAll(toBeStored.list);
+            System.out.println("Successfully added " + toBeStored.name
+                    + " to the review list");
+            return;
+        }
+        DirectoryCatalog.Entry entry = findList(file);
+        if (entry != null) {
+            addEntryToReview(entry);
+            System.out.println("Successfully added " + entry.name
+                    + " to the review list");
+            return;
+        }
+        System.out.println("File does not exist>_<");
+        System.out.println();
+    }
+
+    // Add all word files to review
+    public void addAllToReview() {
+        // First clear the review list
+        clearReviewed();
+        List<String> names = catalog.names();
+        names.remove("review");
+        if (loader != null) {
+            loader.load(names, this::parseList, this::internList, review().list);
+        }
+        for (String name: names) {
+            if (loader == null) {
+                DirectoryCatalog.Entry entry = catalog.get(name);
+                if (entry == null) {
+                    continue;
+                }
+                addEntryToReview(entry);
+            }
+            System.out.println("Successfully added --" + name
+                    + "-- to the review list");
+            System.out.println();
+        }
+        if (loader != null) {
+            System.out.println(loader.getTimings());
+            System.out.println();
+        }
+        if (!toBeStored.name.equals("")) {
+            review().list.putAll(toBeStored.list);
+            System.out.println("Successfully added --" + toBeStored.name
+                    + "-- to the review list");
+            System.out.println();
+        }
+    }
+
+    // Look a word list up in the catalog, ignoring case
+    // The review list itself is not a word list
+    private DirectoryCatalog.Entry findList(String file) {
+        if (file.equalsIgnoreCase("review")) {
+            return null;
+        }
+        return catalog.get(file);
+    }
+
+    // Put every pair of a cataloged list into the review list
+    private void addEntryToReview(DirectoryCatalog.Entry entry) {
+        BinaryWordList binary = openBinary(entry);
+        if (binary != null) {
+            binary.putAllInto(review().list);
+            if (nearMisses != null) {
+                binary.forEach((word, meaning) -> nearMisses.add(meaning));
+            }
+        } else {
+            Map<String, String> list = deserialize(entry.name + ".json").list;
+            addNearMisses(list.values());
+            review().list.putAll(list);
+        }
+    }
+
+
+
+    // Deserialize an WordList
+    // file must be a valid file!
+    // If the file does not exist, return a new empty
+    // WordList
+    WordList deserialize(String file) {
+        return deserialize(file, null);
+    }
+
+    // Same as above, putting the pairs into target
+    // Without target the list returned is a read-only view
+    // of the cached list; lists we keep are copied into target
+    private WordList deserialize(String file, Map<String, String> target) {
+        LoadStats stats = new LoadStats();
+        WordList ret = readList(file, stats, target);
+        addLoadStats(stats);
+        lastReplayed = stats.replayed;
+        return ret;
+    }
+
+    // Does the work of deserialize without touching the fields
+    // of this memorizer, so lists can be read on any thread
+    private WordList readList(String file, LoadStats stats, Map<String, String> target) {
+        try (Metrics.Sample sample = metrics.start("deserialize").target(file)) {
+            WordList ret = readListUntimed(file, stats, target);
+            sample.bytes(stats.bytes).entries(stats.entries);
+            return ret;
+        }
+    }
+
+    // A list read by parseList
+    private static class ParsedList {
+        final LoadStats stats = new LoadStats();
+        String path;
+        long signature;
+        // Set if the list was cached
+        ListCache.Entry cached;
+        // Otherwise the pairs read, as Strings
+        WordList read;
+    }
+
+    // First half of reading a list on the parallel loader: the cached
+    // list, or its pairs read into a HashMap of its own, so that the
+    // loader threads never wait for the lock of the store
+    private ParsedList parseList(String name) {
+        ParsedList ret = new ParsedList();
+        try (Metrics.Sample sample = metrics.start("deserialize").target(name + ".json")) {
+            persister.await(writeKey(name));
+            ret.path = new File(dirPath, name + ".json").getPath();
+            ret.signature = DirectoryCatalog.signature(dir, name);
+            ret.cached = cache.get(ret.path, ret.signature, store);
+            if (ret.cached == null) {
+                ret.read = readFromDisk(name, ret.stats, new HashMap<>());
+            }
+            sample.bytes(ret.stats.bytes).entries(ret.stats.entries);
+        }
+        addLoadStats(ret.stats);
+        return ret;
+    }
+
+    // Second half, run on one thread in list order: intern the pairs
+    // into the store once and cache them
+    private Map<String, String> internList(ParsedList parsed) {
+        if (parsed.cached != null) {
+            return parsed.cached.list;
+        }
+        CompactWordMap list = new CompactWordMap(store, parsed.read.list.size());
+        list.putAll(parsed.read.list);
+        if (parsed.stats.failed) {
+            return list;
+        }
+        return cache.put(parsed.path, parsed.signature, parsed.read.name, list,
+                parsed.stats.replayed, parsed.stats.bytes).list;
+    }
+
+    private WordList readListUntimed(String file, LoadStats stats, Map<String, String> target) {
+        String name = file.substring(0, file.indexOf("."));
+        persister.await(writeKey(name));
+        String path = new File(dirPath, file).getPath();
+        long signature = DirectoryCatalog.signature(dir, name);
+        ListCache.Entry cached = cache.get(path, signature, store);
+        if (cached == null) {
+            WordList read = readFromDisk(name, stats, new CompactWordMap(store));
+            if (stats.failed) {
+                if (target != null) {
+                    target.putAll(read.list);
+                    read.list = target;
+                }
+                return read;
+            }
+            cached = cache.put(path, signature, read.name, (CompactWordMap) read.list, stats.replayed, stats.bytes);
+        }
+        stats.replayed = cached.replayed;
+        WordList ret = new WordList();
+        ret.name = cached.name;
+        if (target == null) {
+            ret.list = cached.list;
+        } else {
+            target.putAll(cached.list);
+            ret.list = target;
+        }
+        return ret;
+    }
+
+    // Read a list from its binary or JSON file and its journal
+    private WordList readFromDisk(String name, LoadStats stats, Map<String, String> target) {
+        File reviewFile = DirectoryCatalog.jsonFile(dir, name);
+        DirectoryCatalog.Entry entry = catalog.get(name);
+        BinaryWordList binary = entry == null ? null : openBinary(entry);
+        if (binary != null) {
+            stats.entries += binary.size();
+            stats.bytes += entry.size;
+            WordList ret = new WordList();
+            ret.name = binary.name();
+            ret.list = target;
+            binary.putAllInto(target);
+            return ret;
+        }
+        if (!reviewFile.exists()) {
+            WordList ret = new WordList();
+            ret.name = name;
+            ret.list = target;
+            stats.replayed = WordJournal.replay(WordJournal.fileFor(dir, name), ret.list);
+            return ret;
+        }
+        WordListReader reader = new WordListReader();
+        WordList ret;
+        try {
+            ret = reader.read(reviewFile, target);
+            if (reader.usedLegacyCharset()) {
+                // Written by an older version; the next save makes it UTF-8
+                metrics.add("deserialize.legacyCharset", 1);
+            }
+        } catch (Exception e) {
+            reportError("deserialize", e);
+            stats.failed = true;
+            ret = new WordList();
+            ret.name = name;
+            target.clear();
+            ret.list = target;
+        }
+        stats.entries += reader.getEntriesLoaded();
+        stats.bytes += reader.getBytesRead();
+        stats.replayed = WordJournal.replay(WordJournal.fileFor(dir, name), ret.list);
+        if (stats.replayed == 0) {
+            catalog.setEntryCount(name, ret.list.size());
+        }
+        return ret;
+    }
+
+    // Add what one read cost to the running totals
+    private synchronized void addLoadStats(LoadStats stats) {
+        entriesLoaded += stats.entries;
+        bytesRead += stats.bytes;
+    }
+
+    // Open the binary form of a list if it is at least
+    // as fresh as its JSON snapshot and no journal is pending;
+    // otherwise return null
+    private BinaryWordList openBinary(DirectoryCatalog.Entry entry) {
+        persister.await(writeKey(entry.name));
+        if (!entry.binaryCurrent || WordJournal.fileFor(dir, entry.name).exists()) {
+            return null;
+        }
+        try {
+            return BinaryWordList.open(BinaryWordList.fileFor(dir, entry.name));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Serialize an WordList
+    // It would overwrite the preexisting content
+    // in the file if that file has been created
+    // Return whether the list was written
+    boolean serialize(WordList toBeSerialized) {
+        if (toBeSerialized.name.equals("")) {
+            return false;
+        }
+        boolean written = false;
+        File reviewFile = CreateFile(jsonName(toBeSerialized.name));
+        try (Metrics.Sample sample = metrics.start("serialize").target(reviewFile.getName())) {
+            // Written next to the file and renamed over it, so that a
+            // crash never leaves half a list behind
+            AtomicFiles.write(reviewFile, out -> writeJson(toBeSerialized, out));
+            sample.bytes(reviewFile.length()).entries(toBeSerialized.list.size());
+            written = true;
+        } catch (Exception e) {
+            reportError("serialize", e);
+        }
+        listWritten(toBeSerialized, written);
+        return written;
+    }
+
+    // File the list called name is written to
+    private String jsonName(String name) {
+        return name + (compressed ? DirectoryCatalog.GZIP_EXTENSION : ".json");
+    }
+
+    // Write list as JSON, compressed if lists are written compressed
+    private void writeJson(WordList list, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = compressed ? new GZIPOutputStream(out, 1 << 16) : null;
+        Writer writer = new OutputStreamWriter(gzip != null ? gzip : out, StandardCharsets.UTF_8);
+        new Gson().toJson(list, writer);
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+    }
+
+    // Bring what is known about list up to date after writing it
+    private void listWritten(WordList list, boolean written) {
+        String plain = list.name + ".json";
+        if (written) {
+            // The other form is stale now
+            new File(dirPath, compressed ? plain : list.name + DirectoryCatalog.GZIP_EXTENSION).delete();
+        }
+        cache.invalidate(new File(dirPath, plain).getPath());
+        catalog.refresh(list.name);
+        catalog.setEntryCount(list.name, list.list.size());
+    }
+
+    // Commit the review list, unless it is null, and count.txt as one
+    // generation of state.manifest in the background, so that a crash
+    // leaves both as the last quit left them or both as they are now
+    private void commitState(WordList snapshot, int count) {
+        persister.submit(writeKey(snapshot == null ? COUNT_FILE : snapshot.name), () -> {
+            try (Metrics.Sample sample = metrics.start("commitState")) {
+                Map<String, AtomicFiles.Content> files = new LinkedHashMap<>();
+                if (snapshot != null) {
+                    files.put(jsonName(snapshot.name), out -> writeJson(snapshot, out));
+                    sample.entries(snapshot.list.size());
+                }
+                files.put(COUNT_FILE, out -> writeCount(count, out));
+                state.commit(count, files);
+                if (snapshot != null) {
+                    listWritten(snapshot, true);
+                }
+            } catch (Exception e) {
+                reportError("commitState", e);
+                if (snapshot != null) {
+                    // Written the old way rather than not at all
+                    serialize(snapshot);
+                }
+                writeTotalCount(count);
+            }
+        });
+    }
+
+    // User ready to quit the app
+    // We need to store necessary information
+    // in the file; the files are written in the
+    // background, close() waits for them
+    public void quit() {
+        metrics.time("quit", this::quitUntimed);
+    }
+
+    private void quitUntimed() {
+        if (!toBeStored.name.equals("")) {
+            // Closing forces the journal to disk, so the words added
+            // this session survive until the snapshot replaces it
+            closeJournal();
+            compact();
+            // We want to add the last list that we have stored
+            // to our review list
+            review().list.putAll(toBeStored.list);
+        }
+        // We also want to add mistake list to review list
+        // for future review
+        addMisToReview();
+        // Update totalCount
+        totalCount += memoCount;
+        int count = totalCount;
+        if (review().list instanceof ShardedReviewList) {
+            saveReviewShards();
+            commitState(null, count);
+        } else if (review().list instanceof ReviewSet) {
+            saveReviewSet(count);
+        } else {
+            commitState(snapshotOf(review()), count);
+        }
+        Map<String, ReviewScheduler.Card> cards = scheduler.snapshot();
+        persister.submit(writeKey(ReviewScheduler.FILE_NAME), () -> ReviewScheduler.save(dir, cards));
+        if (index != null) {
+            // Queued after the lists, so the signatures saved
+            // are those of the files just written
+            SearchIndex saved = index;
+            persister.submit(writeKey(SearchIndex.FILE_NAME), () -> {
+                try (Metrics.Sample sample = metrics.start("saveSearchIndex")) {
+                    File file = new File(dir, SearchIndex.FILE_NAME);
+                    saved.save(file, name -> DirectoryCatalog.signature(dir, name));
+                    sample.target(file.getName()).bytes(file.length());
+                } catch (Exception e) {
+                    reportError("saveSearchIndex", e);
+                }
+            });
+        }
+        if (loader != null) {
+            loader.shutdown();
+        }
+        try {
+            catalog.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Background writer for a memorizer, or for several
+    // sharing one as the server does
+    public static WriteBehindPersister newPersister(Metrics metrics) {
+        return new WriteBehindPersister("memorizer-writer", PENDING_WRITES, metrics);
+    }
+
+    // List cache of memorizer.cacheBytes, 64 MB by default
+    public static ListCache newCache(Metrics metrics) {
+        return new ListCache(Long.getLong("memorizer.cacheBytes", 64L << 20), metrics);
+    }
+
+    // Key of a file of dir in the persister; prefixed with dir so
+    // that memorizers sharing a persister never coalesce each
+    // other's writes
+    private String writeKey(String name) {
+        return dir.getPath() + File.separator + name;
+    }
+
+    // Wait until every write this memorizer submitted is done
+    private void flushWrites() {
+        persister.flush(dir.getPath() + File.separator);
+    }
+
+    // Wait until everything saved so far is on disk
+    // and stop the background writer, unless it is shared
+    public void close() {
+        // The review list may still be loading, and may write review.json
+        review();
+        if (ownsShared) {
+            persister.close();
+        } else {
+            flushWrites();
+            // The lists cached hold IDs of this memorizer's store
+            cache.invalidateUnder(dir.getPath());
+        }
+        try {
+            if (history != null) {
+                history.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (metricsFile != null) {
+            metrics.dump(metricsFile);
+        }
+    }
+
+
+    // The main application
+    public static void main(String[] args) {
+        if (args.length > 2 && args[0].equalsIgnoreCase("import") && args[2].endsWith(WordBundle.EXTENSION)) {
+            unpackMain(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            exportMain(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("import")) {
+            importMain(args);
+            return;
+        }
+        if (args.length > 0 && (args[0].equalsIgnoreCase("compress")
+                || args[0].equalsIgnoreCase("decompress"))) {
+            compressMain(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("replay")) {
+            replayMain(args);
+            return;
+        }
+        final String dirPath = "C:\\Users\\pguan\\Vocab-Memorizer\\Memorizer\\WordDir";
+        Scanner scanner = new Scanner(System.in);
+        System.out.println("Welcome to Vocab-Memorizer!");
+        System.out.println("Is " + dirPath + " your working directory path? (Yes or No)");
+        String resp = scanner.nextLine();
+        while (!resp.equalsIgnoreCase("y") && !resp.equalsIgnoreCase("yes")
+            && !resp.equalsIgnoreCase("n") && !resp.equalsIgnoreCase("no")) {
+            System.out.println("Please speak something I understand: Y or N, Yes or No (Case-insensitive)");
+            resp = scanner.nextLine();
+        }
+        if (!resp.equalsIgnoreCase("y") && !resp.equalsIgnoreCase("yes")) {
+            System.out.println("Maybe you should go and change this path in the main to the correct " +
+                    "path and then come back!");
+            return;
+        }
+        System.out.println("Really? Emmm, let's check...");
+        System.out.println("Try to cache unfinished review list...");
+        CommandEngine engine = new CommandEngine(dirPath, true);
+        Memorizer memo = engine.getMemorizer();
+        String metricsPath = System.getProperty("memorizer.metricsFile");
+        if (metricsPath != null) {
+            memo.setMetricsFile(new File(metricsPath));
+        }
+        if (!memo.isValid()) {
+            System.out.println("How dare you lie to me! Go and change it to a valid directory path");
+            return;
+        }
+        // Record the session, so it can be replayed later
+        String logPath = System.getProperty("memorizer.sessionLog");
+        if (logPath != null) {
+            try {
+                engine.setLog(new OutputStreamWriter(new FileOutputStream(logPath, true), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        System.out.println("Alright! Looks like you are ready");
+        System.out.println("Before we start, I want to mention that if hit q or Q for quiting");
+        System.out.println("the activity, we will back up all of the current lists under the path you provide!");
+        System.out.println("Automatic saving feature, I am so sweet right?");
+        System.out.println("Make sure to wait for the program itself to end before you close the IDE...");
+        System.out.println();
+        while (true) {
+            System.out.println("What is your instruction:");
+            System.out.println("S or s: storing a list of word-meaning pairs");
+            System.out.println("R or r: review previous vocabs");
+            System.out.println("D or d: delete a specified list");
+            System.out.println("F or f: find a word in all lists");
+            System.out.println("T or t: show statistics of this session");
+            System.out.println("H or h: show how your reviews went so far");
+            System.out.println("Q or q: quit today's activity");
+            System.out.println();
+            resp = scanner.nextLine();
+            if (resp.equalsIgnoreCase("s")) {
+                storeList(engine, scanner);
+            } else if (resp.equalsIgnoreCase("r")) {
+                reviewList(engine, scanner);
+            } else if (resp.equalsIgnoreCase("d")) {
+                deleteList(engine, scanner);
+            } else if (resp.equalsIgnoreCase("f")) {
+                findWord(engine, scanner);
+            } else if (resp.equalsIgnoreCase("t")) {
+                System.out.println(memo.getMetrics().report());
+            } else if (resp.equalsIgnoreCase("h")) {
+                showHistory(memo);
+            } else if (resp.equalsIgnoreCase("q")) {
+                quitApp(engine);
+                break;
+            } else {
+                System.out.println("Sorry, I don't understand your instruction");
+                System.out.println("Please try again");
+                System.out.println();
+            }
+        }
+        scanner.close();
+    }
+
+    // Headless import:
+    // import <directory> <file> <list> [keep-first|keep-last|merge] [tsv|csv|colon]
+    private static void importMain(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: import <directory> <file> <list> "
+                    + "[keep-first|keep-last|merge] [tsv|csv|colon]");
+            return;
+        }
+        File source = new File(args[2]);
+        try {
+            BulkImporter.DuplicatePolicy policy = args.length > 4
+                    ? BulkImporter.DuplicatePolicy.of(args[4]) : BulkImporter.DuplicatePolicy.KEEP_LAST;
+            BulkImporter.Format format = args.length > 5
+                    ? BulkImporter.Format.valueOf(args[5].toUpperCase(Locale.ROOT)) : BulkImporter.Format.of(source);
+            Memorizer memo = new Memorizer(args[1]);
+            if (!memo.isValid()) {
+                System.out.println("Not a directory: " + args[1]);
+                return;
+            }
+            System.out.println(memo.importFile(source, args[3], format, policy));
+            memo.close();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown option: " + e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Headless export of a whole directory into one bundle file:
+    // export <directory> <bundle>
+    private static void exportMain(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: export <directory> <bundle>");
+            return;
+        }
+        File dir = new File(args[1]);
+        if (!dir.isDirectory()) {
+            System.out.println("Not a directory: " + args[1]);
+            return;
+        }
+        File bundle = new File(args[2].endsWith(WordBundle.EXTENSION) ? args[2] : args[2] + WordBundle.EXTENSION);
+        try {
+            System.out.println("Exported " + WordBundle.export(dir, bundle) + " into " + bundle);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Headless import of a bundle written by export, all of it or only
+    // the given lists: import <directory> <bundle> [list...]
+    private static void unpackMain(String[] args) {
+        File dir = new File(args[1]);
+        if (!dir.isDirectory()) {
+            System.out.println("Not a directory: " + args[1]);
+            return;
+        }
+        File bundle = new File(args[2]);
+        List<String> lists = Arrays.asList(args).subList(3, args.length);
+        try {
+            Set<String> missing = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            missing.addAll(lists);
+            missing.removeAll(WordBundle.lists(bundle));
+            if (!missing.isEmpty()) {
+                System.out.println("Not in " + bundle + ": " + missing);
+                return;
+            }
+            System.out.println("Imported " + WordBundle.unpack(bundle, dir, lists));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Headless migration between plain and compressed lists:
+    // compress <directory> or decompress <directory>
+    private static void compressMain(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: compress|decompress <directory>");
+            return;
+        }
+        Memorizer memo = new Memorizer(args[1]);
+        if (!memo.isValid()) {
+            System.out.println("Not a directory: " + args[1]);
+            return;
+        }
+        try {
+            System.out.println(memo.convertLists(args[0].equalsIgnoreCase("compress")));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        memo.close();
+    }
+
+    // Headless replay of recorded sessions at full speed:
+    // replay <directory> <log>
+    // Prints commands per second and the latency of every command
+    private static void replayMain(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: replay <directory> <log>");
+            return;
+        }
+        if (!new File(args[1]).isDirectory()) {
+            System.out.println("Not a directory: " + args[1]);
+            return;
+        }
+        PrintStream console = System.out;
+        CommandEngine engine = new CommandEngine(args[1], false);
+        long commands;
+        long nanos;
+        try (Reader log = new InputStreamReader(new FileInputStream(args[2]), StandardCharsets.UTF_8)) {
+            // What the lists say about themselves would drown the numbers
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            commands = engine.replay(log);
+            engine.close();
+            nanos = System.nanoTime() - start;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            System.setOut(console);
+        }
+        System.out.printf("%d commands in %.1f ms, %.0f commands/s%n", commands, nanos / 1e6, commands * 1e9 / nanos);
+        System.out.println(engine.getMetrics().report());
+    }
+
+    private static void showHistory(Memorizer memo) {
+        try {
+            AnswerHistory answers = memo.answerHistory();
+            System.out.println("You answered " + answers.size() + " questions");
+            System.out.println("Words you miss most:");
+            for (AnswerHistory.WordStat stat: answers.mostMissed(SEARCH_RESULTS)) {
+                System.out.println("    " + stat);
+            }
+            System.out.println("Right answers per list:");
+            for (AnswerHistory.Accuracy accuracy: memo.accuracyPerList()) {
+                System.out.println("    " + accuracy);
+            }
+            System.out.println("Right answers by time since the word was last reviewed:");
+            for (AnswerHistory.Accuracy accuracy: answers.forgettingCurve()) {
+                if (accuracy.answers > 0) {
+                    System.out.println("    " + accuracy);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        System.out.println();
+    }
+
+    private static void findWord(CommandEngine engine, Scanner in) {
+        System.out.println("What word or meaning are you looking for:");
+        String query = in.nextLine().trim();
+        if (query.isEmpty()) {
+            return;
+        }
+        CommandEngine.Result result = engine.execute("find", query);
+        @SuppressWarnings("unchecked")
+        List<SearchIndex.Match> found = (List<SearchIndex.Match>) result.get("matches");
+        @SuppressWarnings("unchecked")
+        List<SearchIndex.Match> byMeaning = (List<SearchIndex.Match>) result.get("byMeaning");
+        if (!found.isEmpty() && (Boolean) result.get("fuzzy")) {
+            System.out.println("Did you mean:");
+        }
+        for (SearchIndex.Match match: found) {
+            System.out.println("    " + match);
+        }
+        if (!byMeaning.isEmpty()) {
+            System.out.println("Words meaning " + query + ":");
+            for (SearchIndex.Match match: byMeaning) {
+                System.out.println("    " + match);
+            }
+        }
+        if (found.isEmpty() && byMeaning.isEmpty()) {
+            System.out.println("Nothing found>_<");
+        }
+        System.out.println();
+    }
+
+    private static void deleteList(CommandEngine engine, Scanner in) {
+        System.out.println("What is list that you want to delete:");
+        String file = in.nextLine();
+        engine.execute("delete", file);
+        System.out.println();
+    }
+
+    private static void storeList(CommandEngine engine, Scanner in) {
+        int localStoreCount = 0;
+        System.out.println("What is the file name for this list:");
+        String listName = in.nextLine();
+        engine.execute("open", listName);
+        System.out.println("Now you can start recording you word-meaning pairs!");
+        System.out.println("The following pattern has to be followed!");
+        System.out.println("--------------Pattern Below--------------");
+        System.out.println("Word: Meaning");
+        System.out.println("--------------Pattern Above--------------");
+        System.out.println("Don't worry about trailing and leading spaces!");
+        System.out.println("Also if you ever want to stop, you can hit S or s: Stop");
+        System.out.println();
+        while (true) {
+            System.out.println("What is next pair or s (stop) or d word (delete specific word):");
+            String nextPair = in.nextLine().trim();
+            String[] pairs = nextPair.split(":", 2);
+            if (pairs.length != 2) {
+                if (nextPair.equalsIgnoreCase("s")) {
+                    break;
+                }else {
+                    String[] isDelete = nextPair.split(" ");
+                    if (isDelete.length != 2 || !isDelete[0].equalsIgnoreCase("d")) {
+                        System.out.println("I don't understand what you mean, please try again");
+                        continue;
+                    }
+                    CommandEngine.Result result = engine.execute("unstore", isDelete[1]);
+                    if (!(Boolean) result.get("removed")) {
+                        System.out.println(isDelete[1] + " is not in this list");
+                        if (result.get("suggestion") != null) {
+                            System.out.println("Did you mean: " + result.get("suggestion"));
+                        }
+                    }
+                }
+            } else {
+                engine.execute("store", pairs[0].trim(), pairs[1].trim());
+                localStoreCount++;
+            }
+        }
+        System.out.println("You just tried to memorize " + localStoreCount + " words");
+        System.out.println("What a huge effort! Keep up!");
+        System.out.println("In total, your memoCount is " + engine.getMemorizer().getMemoCount() + "!");
+        System.out.println();
+    }
+
+    private static void reviewList(CommandEngine engine, Scanner in) {
+        System.out.println("Alright, in this review sector. There are several instructions you can take:");
+        String resp = "";
+        while (true) {
+            System.out.println("C or c: clear review list");
+            System.out.println("AM or am: add mistake list from current session to review list");
+            System.out.println("A or a: add specified lists to the review list");
+            System.out.println("AA or aa: clear review list and add all lists to the review list");
+            System.out.println("S or s: start reviewing the review list!");
+            System.out.println("D or d: delete a specific list from the review list!");
+            System.out.println();
+            resp = in.nextLine();
+            if (resp.equalsIgnoreCase("c")) {
+                engine.execute("clear");
+            } else if (resp.equalsIgnoreCase("d")) {
+                String name = "";
+                while (true) {
+                    System.out.println("What is name of the list that you want to delete:");
+                    System.out.println("Or hit S or s: Stop current action of deleting");
+                    name = in.nextLine();
+                    if (name.equalsIgnoreCase("s")) {
+                        break;
+                    } else {
+                        engine.execute("remove", name);
+                    }
+                }
+            }else if (resp.equalsIgnoreCase("a")) {
+                String name = "";
+                while (true) {
+                    System.out.println("What is name of the list that you want to add:");
+                    System.out.println("Or hit S or s: Stop current action of adding");
+                    name = in.nextLine();
+                    if (name.equalsIgnoreCase("s")) {
+                        break;
+                    } else {
+                        engine.execute("add", name);
+                    }
+                }
+            } else if (resp.equalsIgnoreCase("aa")) {
+                engine.execute("addAll");
+            } else if (resp.equalsIgnoreCase("am")) {
+                engine.execute("addMistakes");
+            }else if (resp.equalsIgnoreCase("s")) {
+                break;
+            } else {
+                System.out.println("Sorry, I don't understand your instruction");
+                System.out.println("Please try again");
+                System.out.println();
+            }
+        }
+        reviewStart(engine, in);
+    }
+
+    // Helper method specifically for managing reviewing activity
+    private static void reviewStart(CommandEngine engine, Scanner in) {
+        System.out.println("Ok, let's get review rolling~~~~~");
+        System.out.println("Picking the words that are due...");
+        System.out.println();
+        CommandEngine.Result question = engine.execute("review");
+        if (Boolean.TRUE.equals(question.get("nothingDue"))) {
+            System.out.println("Nothing is due right now, come back later!");
+        }
+        CommandEngine.Result end = question;
+        while (question.get("word") != null) {
+            String word = (String) question.get("word");
+            @SuppressWarnings("unchecked")
+            List<String> options = (List<String>) question.get("options");
+            System.out.println("(Y or N) Can you remember what does -- "
+                    + word + " -- mean?");
+            String resp = in.nextLine().toUpperCase();
+            while (!resp.equalsIgnoreCase("n") && !resp.equalsIgnoreCase("y")) {
+                System.out.println("Y or N, case-insensitive");
+                resp = in.nextLine().toUpperCase();
+            }
+            System.out.println("What is the meaning of the word: " + word);
+            // Fewer than four options when the review list
+            // has fewer distinct meanings
+            List<String> letters = new ArrayList<>();
+            for (int i = 0; i < options.size(); i++) {
+                letters.add(String.valueOf((char) ('A' + i)));
+                System.out.println(letters.get(i) + ": " + options.get(i));
+            }
+            System.out.println("E: Stop and I need to rest");
+            String ans = in.nextLine().toUpperCase();
+            while (!letters.contains(ans) && !ans.equals("E")) {
+                System.out.println("Can you just pick " + String.join(" ", letters) + " or E!!!!");
+                ans = in.nextLine().toUpperCase();
+            }
+            CommandEngine.Result answer = engine.execute("answer", ans, resp);
+            if (Boolean.TRUE.equals(answer.get("stopped"))) {
+                System.out.println("Ok, go have a rest...");
+                end = answer;
+                break;
+            } else if ((Boolean) answer.get("correct")) {
+                System.out.println("Yeah, you got it right :)");
+            } else {
+                System.out.println("Sad, you got it wrong :(");
+            }
+            System.out.println(answer.get("answer") + " is the correct option.");
+            System.out.println();
+            System.out.println("The meaning of -- " + word + " -- is:");
+            System.out.println("    " + answer.get("meaning"));
+            System.out.println();
+            question = engine.execute("review");
+            end = question;
+        }
+        System.out.println("Managing review and mistake list...");
+        System.out.println("You reviewed " + end.get("reviewed") + " words");
+        if ((Boolean) end.get("finished")) {
+            System.out.println("Wow, you finished reviewing all the words that were due!");
+        }
+        System.out.println("What a huge effort! Keep up!");
+        System.out.println("In total, your memoCount is " + end.get("memoCount") + "!");
+        System.out.println();
+    }
+
+    // Help to pick a meaning if there are over 4 words; otherwise
+    // there are fewer options, one per distinct meaning
+    public static List<String> pickMeaning(Memorizer memo, String meaning, List<String> words) {
+        List<String> meanings = new ArrayList<>(words.size());
+        for (String word: words) {
+            meanings.add(memo.review().list.get(word));
+        }
+        return pickMeaning(new DistractorSampler(meanings, newRandom()), meaning);
+    }
+
+    // Same as above, with the meanings of the session
+    // already collected by sampler
+    public static List<String> pickMeaning(DistractorSampler sampler, String meaning) {
+        List<String> result = new ArrayList<>();
+        result.add(meaning);
+        // Add 3 random meanings to confuse the user
+        result.addAll(sampler.sample(meaning, 3));
+        Collections.shuffle(result, sampler.getRandom());
+        return result;
+    }
+
+    // Random generator for a review session
+    // Set the memorizer.seed system property to make sessions repeatable
+    static Random newRandom() {
+        Long seed = Long.getLong("memorizer.seed");
+        return seed == null ? ThreadLocalRandom.current() : new Random(seed);
+    }
+
+    // Quit app by calling memo.quit to store necessary information
+    private static void quitApp(CommandEngine engine) {
+        System.out.println("Storing necessary information...(Please don't force quit this application)");
+        CommandEngine.Result result = engine.execute("quit");
+        System.out.println("During this period, your total memo count is: " + result.get("memoCount") + "!");
+        System.out.println("Your count since you have used memorizer is: " + result.get("totalCount") + "!");
+        System.out.println("You are gonna do fine in that test, trust me ^_^");
+        System.out.println("Enjoy the rest of your day!");
+        System.out.println();
+    }
+}
@@ -0,0 +1,309 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// Serves many learners from one JVM over HTTP.
+// Every user gets their own directory under the base directory and
+// their own CommandEngine, which runs the same commands as the
+// console; a user's requests are serialized by one of a
+// fixed set of striped locks, so different users never wait on each
+// other unless they share a stripe. All sessions write through one
+// background writer and share one list cache; a session left idle for
+// memorizer.sessionIdleMillis (10 minutes by default) is saved and
+// closed. Each request runs on its own virtual thread when the JVM
+// has them (JDK 21+); the build targets Java 11, where they are
+// looked up by reflection and missing, so requests run on a cached
+// pool of platform threads.
+//
+// Endpoints (GET or POST, parameters in the query string):
+//   /store?user=&list=&word=&meaning=
+//   /review/next?user=
+//   /answer?user=&choice=A..D|E[&remembered=y|n]
+//   /quit?user=
+public class MemorizerServer {
+
+    private static final Pattern USER = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int STRIPES = 256;
+    private static final long IDLE_MILLIS = Long.getLong("memorizer.sessionIdleMillis", 10 * 60 * 1000L);
+
+    // State of one logged-in user
+    private static class Session {
+        // Holds the user's memorizer and the review running
+        final CommandEngine engine;
+        // System.nanoTime of the last request
+        volatile long lastUsed = System.nanoTime();
+
+        Session(CommandEngine engine) {
+            this.engine = engine;
+        }
+    }
+
+    // Thrown for requests that cannot be served
+    private static class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private interface Action {
+        Map<String, Object> run(Session session, Map<String, String> params) throws BadRequest;
+    }
+
+    private final File baseDir;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Gson gson = new Gson();
+    private final Metrics metrics = new Metrics();
+    // Shared by the memorizers of all sessions
+    private final WriteBehindPersister persister = Memorizer.newPersister(metrics);
+    private final ListCache cache = Memorizer.newCache(metrics);
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MemorizerServer(File baseDir, int port) throws IOException {
+        this.baseDir = baseDir;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        executor = newRequestExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/store", exchange -> handle(exchange, this::store));
+        server.createContext("/review/next", exchange -> handle(exchange, this::reviewNext));
+        server.createContext("/answer", exchange -> handle(exchange, this::answer));
+        server.createContext("/quit", exchange -> handle(exchange, null));
+    }
+
+    public void start() {
+        server.start();
+        long period = Math.max(1, IDLE_MILLIS / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Port the server listens on
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stop accepting requests and save every open session
+    public void stop() {
+        server.stop(0);
+        evictor.shutdownNow();
+        for (String user: new ArrayList<>(sessions.keySet())) {
+            ReentrantLock lock = lockFor(user);
+            lock.lock();
+            try {
+                Session session = sessions.remove(user);
+                if (session != null) {
+                    session.engine.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persister.close();
+    }
+
+    // Number of open sessions
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    // Save and close the sessions no request has used for IDLE_MILLIS
+    void evictIdle() {
+        long cutoff = System.nanoTime() - IDLE_MILLIS * 1_000_000;
+        for (Map.Entry<String, Session> entry: sessions.entrySet()) {
+            if (entry.getValue().lastUsed - cutoff > 0) {
+                continue;
+            }
+            String user = entry.getKey();
+            ReentrantLock lock = lockFor(user);
+            lock.lock();
+            try {
+                // A request may have come in before we got the lock
+                Session session = sessions.get(user);
+                if (session != null && session.lastUsed - cutoff <= 0) {
+                    quit(user);
+                    metrics.add("server.evicted", 1);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Usage: MemorizerServer <base directory> [port]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: MemorizerServer <base directory> [port]");
+            return;
+        }
+        File baseDir = new File(args[0]);
+        if (!baseDir.isDirectory()) {
+            System.out.println("Not a directory: " + args[0]);
+            return;
+        }
+        MemorizerServer server = new MemorizerServer(baseDir, args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Serving " + baseDir + " on port " + server.getPort());
+    }
+
+    private Map<String, Object> store(Session session, Map<String, String> params) throws BadRequest {
+        String list = required(params, "list");
+        String word = required(params, "word");
+        String meaning = required(params, "meaning");
+        run(session, "open", list);
+        return run(session, "store", word, meaning);
+    }
+
+    private Map<String, Object> reviewNext(Session session, Map<String, String> params) throws BadRequest {
+        return run(session, "review");
+    }
+
+    private Map<String, Object> answer(Session session, Map<String, String> params) throws BadRequest {
+        String remembered = "n".equalsIgnoreCase(params.get("remembered")) ? "n" : "y";
+        return run(session, "answer", required(params, "choice"), remembered);
+    }
+
+    // Run one command of the session's engine, a failed one as a bad request
+    private static Map<String, Object> run(Session session, String... command) throws BadRequest {
+        CommandEngine.Result result = session.engine.execute(command);
+        if (!result.ok()) {
+            throw new BadRequest(result.error);
+        }
+        return result.values;
+    }
+
+    // Run action for the user of the request under that user's lock
+    private void handle(HttpExchange exchange, Action action) throws IOException {
+        int status = 200;
+        Object body;
+        try {
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String user = required(params, "user");
+            if (!USER.matcher(user).matches()) {
+                throw new BadRequest("Invalid user name");
+            }
+            ReentrantLock lock = lockFor(user);
+            lock.lock();
+            try {
+                if (action == null) {
+                    body = quit(user);
+                } else {
+                    body = action.run(session(user), params);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (BadRequest e) {
+            status = 400;
+            body = Collections.singletonMap("error", e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 500;
+            body = Collections.singletonMap("error", String.valueOf(e));
+        }
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Save and forget the session of user
+    // Must be called with the user's lock held
+    private Map<String, Object> quit(String user) {
+        Session session = sessions.remove(user);
+        Map<String, Object> ret = new LinkedHashMap<>();
+        if (session != null) {
+            // Written before answering, so the next session
+            // of this user reads what this one saved
+            ret.putAll(session.engine.execute("quit").values);
+        }
+        ret.put("quit", session != null);
+        return ret;
+    }
+
+    // Session of user, opened on first use
+    // Must be called with the user's lock held
+    private Session session(String user) {
+        Session session = sessions.get(user);
+        if (session == null) {
+            File dir = new File(baseDir, user);
+            dir.mkdirs();
+            session = new Session(new CommandEngine(() -> new Memorizer(dir.getPath(), false, persister, cache)));
+            sessions.put(user, session);
+        }
+        session.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    private ReentrantLock lockFor(String user) {
+        return stripes[(user.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static String required(Map<String, String> params, String name) throws BadRequest {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new BadRequest("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> ret = new HashMap<>();
+        if (query == null) {
+            return ret;
+        }
+        for (String pair: query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            ret.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    // One virtual thread per request on JDK 21+, a cached pool before that
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package memorizer;
+
+import com.google.gson.GsonBuilder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Timings and counters of one memorizer.
+// Every persistence operation feeds a latency histogram and the byte
+// and entry counters, and also emits a JFR event so a flight recording
+// can line the operations up with GC. Review questions are timed the
+// same way. report() prints everything for the stats command and
+// toJson() is what quit() dumps when asked to
+public class Metrics {
+
+    // Latency histogram with 8 sub-buckets per power of two,
+    // so percentiles are within 12.5% of the real value
+    public static class Histogram {
+        private static final int BUCKETS = 512;
+
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+
+        public synchronized void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets[bucketOf(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized long mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        public synchronized long max() {
+            return max;
+        }
+
+        // Upper bound of the bucket holding the given percentile
+        public synchronized long percentile(double p) {
+            long rank = (long) Math.ceil(count * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+
+        static int bucketOf(long value) {
+            if (value < 8) {
+                return (int) value;
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) ((value >>> (exp - 3)) & 7);
+            return exp * 8 + sub;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < 8) {
+                return bucket;
+            }
+            int exp = bucket / 8;
+            int sub = bucket % 8;
+            return ((9L + sub) << (exp - 3)) - 1;
+        }
+    }
+
+    // A persistence or lookup operation, for flight recordings
+    @Name("memorizer.Operation")
+    @Label("Memorizer Operation")
+    @Category("Memorizer")
+    public static class OperationEvent extends Event {
+        @Label("Operation")
+        public String operation;
+        @Label("Target")
+        public String target;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+        @Label("Entries")
+        public long entries;
+    }
+
+    // One answered review question, for flight recordings
+    @Name("memorizer.Question")
+    @Label("Review Question")
+    @Category("Memorizer")
+    public static class QuestionEvent extends Event {
+        @Label("Word")
+        public String word;
+        @Label("Remembered")
+        public boolean remembered;
+        @Label("Correct")
+        public boolean correct;
+    }
+
+    // One timed operation; close() records it
+    public class Sample implements AutoCloseable {
+        private final String operation;
+        private final long start = System.nanoTime();
+        private final OperationEvent event = new OperationEvent();
+        private String target = "";
+        private long bytes;
+        private long entries;
+
+        private Sample(String operation) {
+            this.operation = operation;
+            event.begin();
+        }
+
+        // File or list the operation worked on
+        public Sample target(String target) {
+            this.target = target;
+            return this;
+        }
+
+        // Bytes read or written by the operation
+        public Sample bytes(long bytes) {
+            this.bytes += bytes;
+            return this;
+        }
+
+        // Pairs read or written by the operation
+        public Sample entries(long entries) {
+            this.entries += entries;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            record(operation, System.nanoTime() - start);
+            if (bytes > 0) {
+                add(operation + ".bytes", bytes);
+            }
+            if (entries > 0) {
+                add(operation + ".entries", entries);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.target = target;
+                event.bytes = bytes;
+                event.entries = entries;
+                event.commit();
+            }
+        }
+    }
+
+    private final Map<String, Histogram> latencies = new ConcurrentSkipListMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    // Start timing an operation
+    public Sample start(String operation) {
+        return new Sample(operation);
+    }
+
+    // Run action, timed as operation
+    public void time(String operation, Runnable action) {
+        Sample sample = start(operation);
+        try {
+            action.run();
+        } finally {
+            sample.close();
+        }
+    }
+
+    // Record how long an operation took
+    public void record(String operation, long nanos) {
+        latencies.computeIfAbsent(operation, k -> new Histogram()).record(nanos);
+    }
+
+    // Add n to a counter
+    public void add(String counter, long n) {
+        counters.computeIfAbsent(counter, k -> new AtomicLong()).addAndGet(n);
+    }
+
+    // Value of a counter
+    public long get(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    // Latency histogram of an operation, or null if it never ran
+    public Histogram latency(String operation) {
+        return latencies.get(operation);
+    }
+
+    // Record an answered review question that was shown at start
+    public void question(String word, boolean remembered, boolean correct, long start) {
+        long nanos = System.nanoTime() - start;
+        record("review.question", nanos);
+        add(correct ? "review.correct" : "review.wrong", 1);
+        QuestionEvent event = new QuestionEvent();
+        if (event.shouldCommit()) {
+            event.word = word;
+            event.remembered = remembered;
+            event.correct = correct;
+            event.commit();
+        }
+    }
+
+    // Human readable table of everything recorded
+    public String report() {
+        StringBuilder ret = new StringBuilder();
+        ret.append(String.format("%-24s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "mean ms", "p50 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, Histogram> entry: latencies.entrySet()) {
+            Histogram h = entry.getValue();
+            ret.append(String.format("%-24s %8d %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), h.count(),
+                    h.mean() / 1e6, h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6));
+        }
+        for (Map.Entry<String, AtomicLong> entry: new TreeMap<>(counters).entrySet()) {
+            ret.append(String.format("%-24s %8d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return ret.toString();
+    }
+
+    // Everything recorded, as JSON
+    public String toJson() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (Map.Entry<String, Histogram> entry: latencies.entrySet()) {
+            Histogram h = entry.getValue();
+            Map<String, Long> fields = new LinkedHashMap<>();
+            fields.put("count", h.count());
+            fields.put("meanNanos", h.mean());
+            fields.put("p50Nanos", h.percentile(50));
+            fields.put("p90Nanos", h.percentile(90));
+            fields.put("p99Nanos", h.percentile(99));
+            fields.put("maxNanos", h.max());
+            latency.put(entry.getKey(), fields);
+        }
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry: counters.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        ret.put("latency", latency);
+        ret.put("counters", counts);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(ret);
+    }
+
+    // Write toJson() into file
+    public void dump(File file) {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
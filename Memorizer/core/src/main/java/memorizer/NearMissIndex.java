@@ -0,0 +1,241 @@
+package memorizer;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// Finds meanings that look like a given meaning, for distractors that
+// are hard to rule out at a glance. Meanings are cut into character
+// bigrams, which works for short words and for Chinese alike; a
+// MinHash signature of BANDS * ROWS values is taken over them and each
+// band of ROWS values is hashed into a bucket, so that meanings sharing
+// many bigrams likely share a bucket (locality sensitive hashing).
+// Only the bucket chains are kept, as int arrays of WordStore meaning
+// IDs. A query reads at most SCAN entries of each of its buckets and
+// ranks them by their exact bigram similarity, so it costs the same
+// however many meanings there are. Meanings can be added at any time;
+// they are never removed, so queries take a filter for the meanings
+// still in use, and only entries the filter accepts count towards SCAN
+public class NearMissIndex {
+
+    // Meanings sharing a third of their bigrams meet in a bucket
+    // about 85% of the time, those sharing a tenth 15% of the time
+    private static final int BANDS = 16;
+    private static final int ROWS = 2;
+    private static final int HASHES = BANDS * ROWS;
+    // Bucket entries read per band of a query, newest first
+    private static final int SCAN = 32;
+    // Meanings less similar than this are no harder to rule out
+    // than random ones
+    private static final double MIN_SIMILARITY = 0.2;
+    // Meanings this similar are as good as the right one,
+    // so they are not offered as wrong options
+    private static final double MAX_SIMILARITY = 0.9;
+
+    private static final int[] MULTIPLIERS = new int[HASHES];
+    private static final int[] OFFSETS = new int[HASHES];
+
+    static {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < HASHES; i++) {
+            MULTIPLIERS[i] = random.nextInt() | 1;
+            OFFSETS[i] = random.nextInt();
+        }
+    }
+
+    private final WordStore store;
+    // Meaning IDs indexed so far
+    private final WordBitmap indexed = new WordBitmap();
+    // Meaning ID of every entry; entry e of band b is chain slot e * BANDS + b
+    private int[] meaningAt = new int[1024];
+    private int entries;
+    // Next slot in the same bucket, + 1; 0 ends the chain
+    private int[] nextSlot = new int[1024 * BANDS];
+    // Open-addressing table from bucket key to its newest slot + 1
+    private long[] bucketKeys = new long[4096];
+    private int[] bucketHeads = new int[4096];
+    private int buckets;
+
+    public NearMissIndex(WordStore store) {
+        this.store = store;
+    }
+
+    // Number of meanings indexed
+    public int size() {
+        return entries;
+    }
+
+    // Index every meaning not indexed yet
+    public void addAll(Collection<String> meanings) {
+        for (String meaning: meanings) {
+            add(meaning);
+        }
+    }
+
+    // Index meaning if it is not indexed yet
+    public void add(String meaning) {
+        int id = store.intern(meaning);
+        if (!indexed.add(id)) {
+            return;
+        }
+        long[] keys = bandKeys(bigrams(meaning));
+        if (entries == meaningAt.length) {
+            meaningAt = Arrays.copyOf(meaningAt, entries * 2);
+            nextSlot = Arrays.copyOf(nextSlot, entries * 2 * BANDS);
+        }
+        int entry = entries++;
+        meaningAt[entry] = id;
+        for (int band = 0; band < BANDS; band++) {
+            int slot = entry * BANDS + band;
+            int bucket = bucketOf(keys[band]);
+            if (bucketHeads[bucket] == 0) {
+                bucketKeys[bucket] = keys[band];
+                buckets++;
+            }
+            nextSlot[slot] = bucketHeads[bucket];
+            bucketHeads[bucket] = slot + 1;
+            if (buckets * 2 > bucketKeys.length) {
+                rehash();
+            }
+        }
+    }
+
+    // Up to k indexed meanings most like meaning, most alike first;
+    // meaning itself and meanings nearly the same are left out
+    public List<String> nearest(String meaning, int k) {
+        return nearest(meaning, k, other -> true);
+    }
+
+    // Same as above, leaving out the meanings accept rejects, such as
+    // ones no longer in the list the index was built from
+    public List<String> nearest(String meaning, int k, Predicate<String> accept) {
+        int[] shingles = bigrams(meaning);
+        long[] keys = bandKeys(shingles);
+        int self = store.lookup(meaning);
+        Set<Integer> seen = new HashSet<>();
+        Set<Integer> rejected = new HashSet<>();
+        List<String> found = new ArrayList<>();
+        List<Double> similarity = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = find(keys[band]);
+            if (bucket < 0) {
+                continue;
+            }
+            // Meanings accept rejects are not counted, so that a list
+            // which lost most of its meanings still finds the rest
+            int read = 0;
+            for (int slot = bucketHeads[bucket]; slot != 0 && read < SCAN; slot = nextSlot[slot - 1]) {
+                int id = meaningAt[(slot - 1) / BANDS];
+                if (id == self || rejected.contains(id)) {
+                    continue;
+                }
+                if (seen.add(id)) {
+                    String other = store.get(id);
+                    if (!accept.test(other)) {
+                        rejected.add(id);
+                        continue;
+                    }
+                    double s = jaccard(shingles, bigrams(other));
+                    if (s >= MIN_SIMILARITY && s < MAX_SIMILARITY) {
+                        found.add(other);
+                        similarity.add(s);
+                    }
+                }
+                read++;
+            }
+        }
+        Integer[] order = new Integer[found.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(similarity.get(b), similarity.get(a)));
+        List<String> ret = new ArrayList<>(Math.min(k, order.length));
+        for (int i = 0; i < order.length && ret.size() < k; i++) {
+            ret.add(found.get(order[i]));
+        }
+        return ret;
+    }
+
+    // Sorted distinct hashes of the character bigrams of s, ignoring
+    // case, with a space before and after s so that its first and
+    // last characters count as much as the others
+    static int[] bigrams(String s) {
+        String padded = " " + s.toLowerCase(Locale.ROOT) + " ";
+        int[] ret = new int[padded.length() - 1];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = WordStore.mix(padded.charAt(i) << 16 | padded.charAt(i + 1));
+        }
+        Arrays.sort(ret);
+        int distinct = 0;
+        for (int i = 0; i < ret.length; i++) {
+            if (i == 0 || ret[i] != ret[i - 1]) {
+                ret[distinct++] = ret[i];
+            }
+        }
+        return Arrays.copyOf(ret, distinct);
+    }
+
+    // Shared bigrams over all bigrams of two sorted shingle sets
+    static double jaccard(int[] a, int[] b) {
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    // Bucket key of every band of the MinHash signature of shingles
+    private static long[] bandKeys(int[] shingles) {
+        long[] ret = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            int h = band;
+            for (int row = 0; row < ROWS; row++) {
+                int i = band * ROWS + row;
+                int min = Integer.MAX_VALUE;
+                for (int shingle: shingles) {
+                    min = Math.min(min, WordStore.mix(shingle * MULTIPLIERS[i] + OFFSETS[i]));
+                }
+                h = h * 0x9e3779b9 + min;
+            }
+            ret[band] = (long) band << 32 | (h & 0xffffffffL);
+        }
+        return ret;
+    }
+
+    // Slot of key in the bucket table, claiming an empty one if needed
+    private int bucketOf(long key) {
+        int mask = bucketKeys.length - 1;
+        int at = WordStore.mix(Long.hashCode(key)) & mask;
+        while (bucketHeads[at] != 0 && bucketKeys[at] != key) {
+            at = (at + 1) & mask;
+        }
+        return at;
+    }
+
+    // Slot of key in the bucket table, or -1 if it has no bucket
+    private int find(long key) {
+        int at = bucketOf(key);
+        return bucketHeads[at] == 0 ? -1 : at;
+    }
+
+    private void rehash() {
+        long[] oldKeys = bucketKeys;
+        int[] oldHeads = bucketHeads;
+        bucketKeys = new long[oldKeys.length * 2];
+        bucketHeads = new int[oldHeads.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                int at = bucketOf(oldKeys[i]);
+                bucketKeys[at] = oldKeys[i];
+                bucketHeads[at] = oldHeads[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package memorizer;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+// Loads many word lists at once for addAllToReview.
+// Files are parsed on a fork-join pool into maps of their own; the
+// parsed lists are then finished (interned into the WordStore, which
+// takes its lock) and merged on the calling thread, in the order they
+// were given, so a word found in several lists gets the same meaning
+// as with one putAll after another
+public class ParallelListLoader {
+
+    // How long each phase of the last load took
+    public static class Timings {
+        public int lists;
+        public long entries;
+        public long parseNanos;
+        public long mergeNanos;
+
+        @Override
+        public String toString() {
+            return "Loaded " + lists + " lists (" + entries + " pairs): parse "
+                    + parseNanos / 1_000_000 + " ms, merge " + mergeNanos / 1_000_000 + " ms";
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Timings timings = new Timings();
+
+    public ParallelListLoader(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    // Parallelism of the pool
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Parse every list with parser on the pool, turn what it gives into
+    // pairs with finisher, one list after another on the calling
+    // thread, and merge all pairs into target
+    // If target is null, merge into a new HashMap
+    public <T> Map<String, String> load(List<String> names, Function<String, T> parser,
+                                        Function<T, Map<String, String>> finisher,
+                                        Map<String, String> target) {
+        long start = System.nanoTime();
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(names.size());
+        for (String name: names) {
+            tasks.add(pool.submit(() -> parser.apply(name)));
+        }
+        List<T> parsed = new ArrayList<>(names.size());
+        for (ForkJoinTask<T> task: tasks) {
+            parsed.add(task.join());
+        }
+        long parsedAt = System.nanoTime();
+        Map<String, String> merged = target != null ? target : new HashMap<>();
+        long total = 0;
+        for (T list: parsed) {
+            Map<String, String> pairs = finisher.apply(list);
+            merged.putAll(pairs);
+            total += pairs.size();
+        }
+        timings.lists = names.size();
+        timings.entries = total;
+        timings.parseNanos = parsedAt - start;
+        timings.mergeNanos = System.nanoTime() - parsedAt;
+        return merged;
+    }
+
+    // Timings of the last load
+    public Timings getTimings() {
+        return timings;
+    }
+
+    // Stop the worker threads
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
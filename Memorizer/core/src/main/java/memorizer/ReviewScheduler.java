@@ -0,0 +1,202 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// SM-2 style spaced-repetition schedule of the review words.
+// Every word has an ease factor, an interval and a due time; the due
+// words are kept in a min-heap so that taking the next N of them costs
+// O(N log n) instead of shuffling the whole review list. The schedule
+// is stored next to review.json as review.schedule
+public class ReviewScheduler {
+
+    public static final String FILE_NAME = "review.schedule";
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final double MIN_EASE = 1.3;
+
+    // Schedule of one word
+    public static class Card {
+        public double ease = 2.5;
+        // Days until the next review
+        public int interval;
+        // Correct reviews in a row
+        public int repetitions;
+        // Epoch millis of the next review
+        public long due;
+    }
+
+    // Heap element; stale once its card has been rescheduled
+    private static class Slot {
+        final String word;
+        final long due;
+        // Random tie-break, so words due at the same time come out shuffled
+        final int order;
+
+        Slot(String word, long due, int order) {
+            this.word = word;
+            this.due = due;
+            this.order = order;
+        }
+    }
+
+    private final Map<String, Card> cards;
+    private final PriorityQueue<Slot> heap = new PriorityQueue<>((a, b) ->
+            a.due != b.due ? Long.compare(a.due, b.due) : Integer.compare(a.order, b.order));
+    private final Random random;
+
+    private ReviewScheduler(Map<String, Card> cards, Random random) {
+        this.cards = cards;
+        this.random = random;
+        for (Map.Entry<String, Card> entry: cards.entrySet()) {
+            push(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Empty schedule
+    public ReviewScheduler(Random random) {
+        this(new HashMap<>(), random);
+    }
+
+    // Read the schedule stored in dir, or start an empty one
+    public static ReviewScheduler load(File dir, Random random) {
+        File file = new File(dir, FILE_NAME);
+        Map<String, Card> cards = null;
+        if (file.exists()) {
+            Type type = new TypeToken<HashMap<String, Card>>() {}.getType();
+            try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8)))) {
+                cards = new Gson().fromJson(reader, type);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return new ReviewScheduler(cards == null ? new HashMap<>() : cards, random);
+    }
+
+    // Write the schedule into dir
+    public void save(File dir) {
+        save(dir, cards);
+    }
+
+    // Copy of every card, for saving on another thread
+    public Map<String, Card> snapshot() {
+        Map<String, Card> ret = new HashMap<>(cards.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Card> entry: cards.entrySet()) {
+            Card card = entry.getValue();
+            Card copy = new Card();
+            copy.ease = card.ease;
+            copy.interval = card.interval;
+            copy.repetitions = card.repetitions;
+            copy.due = card.due;
+            ret.put(entry.getKey(), copy);
+        }
+        return ret;
+    }
+
+    // Write the given cards into dir as the schedule
+    public static void save(File dir, Map<String, Card> cards) {
+        try {
+            AtomicFiles.write(new File(dir, FILE_NAME), out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                new Gson().toJson(cards, writer);
+                writer.flush();
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Schedule every word of the review list that has no card yet,
+    // due right away
+    public void track(Collection<String> words, long now) {
+        for (String word: words) {
+            if (!cards.containsKey(word)) {
+                Card card = new Card();
+                card.due = now;
+                cards.put(word, card);
+                push(word, card);
+            }
+        }
+    }
+
+    // Up to n words of the review list that are due at now,
+    // the most overdue first
+    public List<String> nextDue(int n, long now, Map<String, String> reviewList) {
+        List<String> ret = new ArrayList<>();
+        List<Slot> taken = new ArrayList<>();
+        while (ret.size() < n && !heap.isEmpty() && heap.peek().due <= now) {
+            Slot slot = heap.poll();
+            Card card = cards.get(slot.word);
+            // Drop slots left behind by rescheduling
+            if (card == null || card.due != slot.due) {
+                continue;
+            }
+            if (!reviewList.containsKey(slot.word)) {
+                // The word left the review list; it starts afresh
+                // if it is added again
+                cards.remove(slot.word);
+                continue;
+            }
+            taken.add(slot);
+            ret.add(slot.word);
+        }
+        // The words stay due until they are graded
+        heap.addAll(taken);
+        return ret;
+    }
+
+    // Number of scheduled words
+    public int size() {
+        return cards.size();
+    }
+
+    // Schedule of word, or null if it has none
+    public Card get(String word) {
+        return cards.get(word);
+    }
+
+    // Update the schedule of word after an answer of the given
+    // quality, from 0 (complete blackout) to 5 (perfect recall)
+    public void grade(String word, int quality, long now) {
+        Card card = cards.get(word);
+        if (card == null) {
+            card = new Card();
+            cards.put(word, card);
+        }
+        if (quality < 3) {
+            card.repetitions = 0;
+            card.interval = 1;
+        } else {
+            if (card.repetitions == 0) {
+                card.interval = 1;
+            } else if (card.repetitions == 1) {
+                card.interval = 6;
+            } else {
+                card.interval = (int) Math.round(card.interval * card.ease);
+            }
+            card.repetitions++;
+        }
+        int miss = 5 - quality;
+        card.ease = Math.max(MIN_EASE, card.ease + 0.1 - miss * (0.08 + miss * 0.02));
+        card.due = now + card.interval * DAY;
+        push(word, card);
+    }
+
+    private void push(String word, Card card) {
+        heap.add(new Slot(word, card.due, random.nextInt()));
+        // Rebuild once stale slots outnumber live ones
+        if (heap.size() > 2 * cards.size() + 16) {
+            heap.clear();
+            for (Map.Entry<String, Card> entry: cards.entrySet()) {
+                heap.add(new Slot(entry.getKey(), entry.getValue().due, random.nextInt()));
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package memorizer;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+// Map from word to meaning for the review and mistake lists, kept as a
+// WordBitmap of word IDs from a WordStore plus a table from word ID to
+// meaning ID. Putting one set into another, taking words out and
+// clearing are bitmap operations plus copying int IDs; no strings or
+// entries are created
+public class ReviewSet extends AbstractMap<String, String> implements WordIdMap {
+
+    // The review set as a bitmap, next to review.json
+    public static final String FILE_NAME = "review.bitmap";
+    private static final int MAGIC = 0x4d524231; // "MRB1"
+
+    private final WordStore store;
+    private final WordBitmap words;
+    // Meaning ID + 1 of every word ID, 0 for none
+    private int[] meaningOf;
+
+    public ReviewSet(WordStore store) {
+        this(store, new WordBitmap(), new int[1024]);
+    }
+
+    private ReviewSet(WordStore store, WordBitmap words, int[] meaningOf) {
+        this.store = store;
+        this.words = words;
+        this.meaningOf = meaningOf;
+    }
+
+    @Override
+    public WordStore getStore() {
+        return store;
+    }
+
+    @Override
+    public int putId(int word, int meaning) {
+        if (word < 0 || meaning < 0) {
+            throw new IllegalArgumentException("No ID for word " + word + " or meaning " + meaning);
+        }
+        int old = words.add(word) ? -1 : meaningOf(word);
+        setMeaning(word, meaning);
+        return old;
+    }
+
+    @Override
+    public void removeIdsIf(IntPredicate word) {
+        WordBitmap removed = new WordBitmap();
+        words.forEach(id -> {
+            if (word.test(id)) {
+                removed.add(id);
+            }
+        });
+        words.andNot(removed);
+    }
+
+    // Copy of this set, so that it can be written
+    // while this set keeps changing
+    public ReviewSet snapshot() {
+        return new ReviewSet(store, new WordBitmap(words), meaningOf.clone());
+    }
+
+    // Number of distinct strings of the store this set refers to
+    public int liveStrings() {
+        BitSet live = new BitSet(store.size());
+        words.forEach(id -> {
+            live.set(id);
+            int meaning = meaningOf(id);
+            if (meaning >= 0) {
+                live.set(meaning);
+            }
+        });
+        return live.cardinality();
+    }
+
+    // Copy of this set over a new store holding only its words and
+    // meanings; the new store has a generation of its own, so files
+    // written for the old one are not taken for it
+    public ReviewSet compacted() {
+        ReviewSet ret = new ReviewSet(new WordStore());
+        words.forEach(id -> ret.put(store.get(id), store.get(meaningOf(id))));
+        return ret;
+    }
+
+    // Remove every word of other at once
+    public void removeAll(Collection<String> other) {
+        WordBitmap removed = new WordBitmap();
+        for (String word: other) {
+            int id = store.lookup(word);
+            if (id >= 0) {
+                removed.add(id);
+            }
+        }
+        words.andNot(removed);
+    }
+
+    @Override
+    public int size() {
+        return words.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        int id = store.lookup((String) key);
+        return id >= 0 && words.contains(id);
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int id = store.lookup((String) key);
+        return id >= 0 && words.contains(id) ? store.get(meaningOf(id)) : null;
+    }
+
+    @Override
+    public String put(String word, String meaning) {
+        // Both are interned before the bitmap changes, so a null word or
+        // meaning leaves the set as it was
+        int id = store.intern(word);
+        int meaningId = store.intern(meaning);
+        String old = words.add(id) ? null : store.get(meaningOf(id));
+        setMeaning(id, meaningId);
+        return old;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> other) {
+        if (other instanceof ReviewSet && ((ReviewSet) other).store == store) {
+            ReviewSet set = (ReviewSet) other;
+            words.or(set.words);
+            set.words.forEach(id -> setMeaning(id, set.meaningOf(id)));
+        } else if (other instanceof CompactWordMap && ((CompactWordMap) other).getStore() == store) {
+            ((CompactWordMap) other).forEachIds((word, meaning) -> {
+                words.add(word);
+                setMeaning(word, meaning);
+            });
+        } else {
+            super.putAll(other);
+        }
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int id = store.lookup((String) key);
+        return id >= 0 && words.remove(id) ? store.get(meaningOf(id)) : null;
+    }
+
+    @Override
+    public void clear() {
+        words.clear();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public int size() {
+                return words.cardinality();
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Ids<>(id -> new SimpleImmutableEntry<>(store.get(id), store.get(meaningOf(id))));
+            }
+        };
+    }
+
+    // Only the words are decoded, not their meanings
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() {
+                return words.cardinality();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Ids<>(store::get);
+            }
+        };
+    }
+
+    // Only the meanings are decoded, not their words
+    @Override
+    public Collection<String> values() {
+        return new AbstractCollection<String>() {
+            @Override
+            public int size() {
+                return words.cardinality();
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Ids<>(id -> store.get(meaningOf(id)));
+            }
+        };
+    }
+
+    // Walks the word IDs, turning each into what the view holds
+    private class Ids<T> implements Iterator<T> {
+        private final IntFunction<T> element;
+        private int next = words.nextSetBit(0);
+        private int last = -1;
+
+        Ids(IntFunction<T> element) {
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = next == Integer.MAX_VALUE ? -1 : words.nextSetBit(next + 1);
+            return element.apply(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            words.remove(last);
+            last = -1;
+        }
+    }
+
+    // Save this set into file as a copy of the review list whose
+    // files have the given signature (see DirectoryCatalog.signature);
+    // the store must be saved as well for the IDs to mean anything
+    public void save(File file, long signature) throws IOException {
+        int strings = words.isEmpty() ? 0 : store.size();
+        AtomicFiles.write(file, out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeLong(store.getGeneration());
+            data.writeInt(strings);
+            data.writeLong(signature);
+            write(data);
+            data.flush();
+        });
+    }
+
+    // The set saved in file, if it was saved for the review list files
+    // with the given signature and the strings of store; otherwise null
+    public static ReviewSet load(File file, long signature, WordStore store) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readLong() != store.getGeneration()
+                    || in.readInt() > store.size() || in.readLong() != signature) {
+                return null;
+            }
+            return read(in, store);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Write the words of this set and their meaning IDs
+    // The IDs are only valid with the same WordStore
+    public void write(DataOutput out) throws IOException {
+        words.write(out);
+        out.writeInt(words.cardinality());
+        for (int id = words.nextSetBit(0); id >= 0; id = words.nextSetBit(id + 1)) {
+            out.writeInt(meaningOf(id));
+        }
+    }
+
+    // Read a set written by write
+    // Throws IOException if it refers to strings store does not have
+    public static ReviewSet read(DataInput in, WordStore store) throws IOException {
+        WordBitmap words = WordBitmap.read(in);
+        if (in.readInt() != words.cardinality()) {
+            throw new IOException("Meanings do not match the words");
+        }
+        if (!words.isEmpty() && words.nextSetBit(store.size()) >= 0) {
+            throw new IOException("Word IDs past the end of the store");
+        }
+        int[] meaningIds = new int[words.cardinality()];
+        for (int i = 0; i < meaningIds.length; i++) {
+            meaningIds[i] = in.readInt();
+            if (meaningIds[i] < 0 || meaningIds[i] >= store.size()) {
+                throw new IOException("Meaning ID " + meaningIds[i] + " not in the store");
+            }
+        }
+        ReviewSet ret = new ReviewSet(store, words, new int[1024]);
+        int[] at = {0};
+        words.forEach(id -> ret.setMeaning(id, meaningIds[at[0]++]));
+        return ret;
+    }
+
+    private int meaningOf(int word) {
+        return word < meaningOf.length ? meaningOf[word] - 1 : -1;
+    }
+
+    private void setMeaning(int word, int meaning) {
+        if (word >= meaningOf.length) {
+            meaningOf = Arrays.copyOf(meaningOf, Math.max(word + 1, meaningOf.length * 2));
+        }
+        meaningOf[word] = meaning + 1;
+    }
+}
@@ -0,0 +1,606 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+// Search over the words of every list.
+// Words are kept in a sorted map under their lower-case form, so a
+// prefix search is a range of that map. Every word's letter trigrams
+// point back at it for typo-tolerant search, and the tokens of its
+// meanings do the same for search by meaning. The index is updated as
+// words are stored and deleted, and saved as search.index together with
+// a signature of every list file, so that at startup only the lists
+// changed since are read again
+public class SearchIndex {
+
+    public static final String FILE_NAME = "search.index";
+
+    private static final int MAGIC = 0x4d534931; // "MSI1"
+    private static final int VERSION = 1;
+    // Separates the lower-case form from the word in sort keys
+    private static final char KEY_SEPARATOR = '\0';
+
+    // One word found by a search
+    public static class Match {
+        public final String word;
+        // Edit distance to the query; 0 for prefix and meaning matches
+        public final int distance;
+        // Lists holding the word and its meaning in each of them
+        public final List<String> lists;
+        public final List<String> meanings;
+
+        Match(String word, int distance, List<String> lists, List<String> meanings) {
+            this.word = word;
+            this.distance = distance;
+            this.lists = lists;
+            this.meanings = meanings;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder ret = new StringBuilder(word).append(" -- ");
+            for (int i = 0; i < lists.size(); i++) {
+                if (i > 0) {
+                    ret.append("; ");
+                }
+                ret.append(meanings.get(i)).append(" (").append(lists.get(i)).append(")");
+            }
+            return ret.toString();
+        }
+    }
+
+    // A word and the lists it is in
+    private static class Word {
+        final String word;
+        final String lower;
+        // List ids and the meaning in each list, in parallel
+        int[] lists = new int[0];
+        String[] meanings = new String[0];
+
+        Word(String word) {
+            this.word = word;
+            this.lower = word.toLowerCase(Locale.ROOT);
+        }
+
+        boolean isLive() {
+            return lists.length > 0;
+        }
+    }
+
+    // Growable array of word ids
+    private static class Postings {
+        int[] ids;
+        int size;
+
+        Postings(int capacity) {
+            ids = new int[Math.max(4, capacity)];
+        }
+
+        // Ids mostly come in increasing order, but not always: a word
+        // whose meaning changes adds its id to the tokens of the new
+        // meaning, and a word put back into a list is added to its
+        // words again. Only a repeat of the last id is dropped here;
+        // searches skip repeats and save() sorts the ids again
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private final NavigableMap<String, Integer> byKey = new TreeMap<>();
+    private final List<Word> words = new ArrayList<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+    private final Map<String, Postings> tokens = new HashMap<>();
+    private final List<String> listNames = new ArrayList<>();
+    private final Map<String, Integer> listIds = new HashMap<>();
+    // Ids of the words put into each list, by list id, so that
+    // removing a list only visits its own words; may hold words
+    // removed from the list since
+    private final List<Postings> listWords = new ArrayList<>();
+    // Signature of each list file when it was last indexed
+    private final Map<String, Long> signatures = new HashMap<>();
+    // Per word id scratch space of the searches
+    private int[] counts = new int[0];
+
+    // Record that word means meaning in list
+    public synchronized void put(String list, String word, String meaning) {
+        int id = idOf(word);
+        Word entry = words.get(id);
+        int listId = listIdOf(list);
+        // Not indexed from its file yet
+        signatures.putIfAbsent(list, 0L);
+        int at = indexOf(entry.lists, listId);
+        if (at < 0) {
+            at = entry.lists.length;
+            entry.lists = Arrays.copyOf(entry.lists, at + 1);
+            entry.meanings = Arrays.copyOf(entry.meanings, at + 1);
+            entry.lists[at] = listId;
+            listWords.get(listId).add(id);
+        }
+        entry.meanings[at] = meaning;
+        // Tokens of an old meaning stay in their postings;
+        // searches check the current meanings
+        for (String token: tokensOf(meaning)) {
+            tokens.computeIfAbsent(token, k -> new Postings(4)).add(id);
+        }
+    }
+
+    // Record that word is no longer in list
+    public synchronized void remove(String list, String word) {
+        Integer id = byKey.get(keyOf(word));
+        Integer listId = listIds.get(list);
+        if (id != null && listId != null) {
+            removeFrom(words.get(id), listId);
+        }
+    }
+
+    // Forget everything about list
+    public synchronized void removeList(String list) {
+        Integer listId = listIds.get(list);
+        signatures.remove(list);
+        if (listId == null) {
+            return;
+        }
+        Postings listed = listWords.get(listId);
+        for (int i = 0; i < listed.size; i++) {
+            removeFrom(words.get(listed.ids[i]), listId);
+        }
+        listWords.set(listId, new Postings(4));
+    }
+
+    // Index list again with the given pairs
+    public synchronized void replaceList(String list, Map<String, String> pairs) {
+        removeList(list);
+        for (Map.Entry<String, String> pair: pairs.entrySet()) {
+            put(list, pair.getKey(), pair.getValue());
+        }
+    }
+
+    // Signature a list file had when it was last indexed,
+    // 0 if it changed since
+    public synchronized long signatureOf(String list) {
+        return signatures.getOrDefault(list, 0L);
+    }
+
+    public synchronized void setSignature(String list, long signature) {
+        signatures.put(list, signature);
+    }
+
+    // Names of the lists that have been indexed
+    public synchronized Set<String> indexedLists() {
+        return new HashSet<>(signatures.keySet());
+    }
+
+    // Number of words in at least one list
+    public synchronized int size() {
+        int ret = 0;
+        for (Word word: words) {
+            if (word.isLive()) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    // Words in list, empty if it is not indexed
+    public synchronized Set<String> wordsOf(String list) {
+        Integer listId = listIds.get(list);
+        if (listId == null) {
+            return Collections.emptySet();
+        }
+        Postings listed = listWords.get(listId);
+        Set<String> ret = new HashSet<>(listed.size * 2);
+        for (int i = 0; i < listed.size; i++) {
+            Word word = words.get(listed.ids[i]);
+            if (indexOf(word.lists, listId) >= 0) {
+                ret.add(word.word);
+            }
+        }
+        return ret;
+    }
+
+    // Lists holding word, empty if none
+    public synchronized List<String> listsOf(String word) {
+        Integer id = byKey.get(keyOf(word));
+        return id == null ? Collections.emptyList() : matchOf(words.get(id), 0).lists;
+    }
+
+    // Up to limit words starting with prefix, ignoring case, in order
+    public synchronized List<Match> prefix(String prefix, int limit) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<Match> ret = new ArrayList<>();
+        for (int id: byKey.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            if (ret.size() == limit) {
+                break;
+            }
+            Word word = words.get(id);
+            if (word.isLive()) {
+                ret.add(matchOf(word, 0));
+            }
+        }
+        return ret;
+    }
+
+    // Up to limit words within maxDistance edits of query, ignoring case,
+    // the closest first
+    // One edit changes at most three trigrams, so only words sharing
+    // enough trigrams with the query are compared with it
+    public synchronized List<Match> fuzzy(String query, int maxDistance, int limit) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        Set<String> queryGrams = gramsOf(lower);
+        int needed = Math.max(1, queryGrams.size() - 3 * maxDistance);
+        ensureCounts();
+        Postings touched = new Postings(64);
+        for (String gram: queryGrams) {
+            Postings postings = grams.get(gram);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                int id = postings.ids[i];
+                if (counts[id]++ == 0) {
+                    touched.add(id);
+                }
+            }
+        }
+        List<Match> ret = new ArrayList<>();
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.ids[i];
+            int shared = counts[id];
+            counts[id] = 0;
+            Word word = words.get(id);
+            if (shared < needed || !word.isLive()
+                    || Math.abs(word.lower.length() - lower.length()) > maxDistance) {
+                continue;
+            }
+            int distance = distance(lower, word.lower, maxDistance);
+            if (distance <= maxDistance) {
+                ret.add(matchOf(word, distance));
+            }
+        }
+        ret.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance)
+                : a.word.compareTo(b.word));
+        return ret.size() > limit ? new ArrayList<>(ret.subList(0, limit)) : ret;
+    }
+
+    // Up to limit words having a meaning that holds every token of query
+    public synchronized List<Match> byMeaning(String query, int limit) {
+        Set<String> queryTokens = tokensOf(query);
+        List<Postings> postings = new ArrayList<>();
+        for (String token: queryTokens) {
+            Postings p = tokens.get(token);
+            if (p == null) {
+                return new ArrayList<>();
+            }
+            postings.add(p);
+        }
+        List<Match> ret = new ArrayList<>();
+        if (postings.isEmpty()) {
+            return ret;
+        }
+        // Walk the rarest token and check the others on its words
+        Postings rarest = Collections.min(postings, Comparator.comparingInt(p -> p.size));
+        ensureCounts();
+        for (int i = 0; i < rarest.size && ret.size() < limit; i++) {
+            int id = rarest.ids[i];
+            Word word = words.get(id);
+            if (counts[id] != 0 || !word.isLive()) {
+                continue;
+            }
+            counts[id] = 1;
+            Set<String> wordTokens = new HashSet<>();
+            for (String meaning: word.meanings) {
+                wordTokens.addAll(tokensOf(meaning));
+            }
+            if (wordTokens.containsAll(queryTokens)) {
+                ret.add(matchOf(word, 0));
+            }
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            counts[rarest.ids[i]] = 0;
+        }
+        return ret;
+    }
+
+    // Write the index into file, with the signature of every
+    // indexed list given by signature
+    // Words that are in no list any more are dropped
+    public synchronized void save(File file, ToLongFunction<String> signature) throws IOException {
+        // New ids: live words in sort order
+        int[] newIds = new int[words.size()];
+        Arrays.fill(newIds, -1);
+        List<Word> live = new ArrayList<>();
+        for (int id: byKey.values()) {
+            if (words.get(id).isLive()) {
+                newIds[id] = live.size();
+                live.add(words.get(id));
+            }
+        }
+        List<String> saved = new ArrayList<>(signatures.keySet());
+        int[] newListIds = new int[listNames.size()];
+        Arrays.fill(newListIds, -1);
+        for (int i = 0; i < saved.size(); i++) {
+            newListIds[listIdOf(saved.get(i))] = i;
+        }
+        // Written next to the file and renamed over it, so a crash
+        // leaves the old index rather than a truncated one
+        AtomicFiles.write(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(saved.size());
+            for (String list: saved) {
+                writeString(out, list);
+                out.writeLong(signature.applyAsLong(list));
+            }
+            out.writeInt(live.size());
+            for (Word word: live) {
+                writeString(out, word.word);
+                int kept = 0;
+                for (int list: word.lists) {
+                    if (newListIds[list] >= 0) {
+                        kept++;
+                    }
+                }
+                out.writeInt(kept);
+                for (int i = 0; i < word.lists.length; i++) {
+                    if (newListIds[word.lists[i]] >= 0) {
+                        out.writeInt(newListIds[word.lists[i]]);
+                        writeString(out, word.meanings[i]);
+                    }
+                }
+            }
+            writePostings(out, grams, newIds);
+            writePostings(out, tokens, newIds);
+            out.flush();
+        });
+    }
+
+    // Read the index saved in file, or start an empty one
+    public static SearchIndex load(File file) {
+        SearchIndex ret = new SearchIndex();
+        if (!file.exists()) {
+            return ret;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a search index: " + file);
+            }
+            int listCount = in.readInt();
+            for (int i = 0; i < listCount; i++) {
+                String list = readString(in);
+                ret.listIdOf(list);
+                ret.signatures.put(list, in.readLong());
+            }
+            int wordCount = in.readInt();
+            for (int id = 0; id < wordCount; id++) {
+                Word word = new Word(readString(in));
+                int count = in.readInt();
+                word.lists = new int[count];
+                word.meanings = new String[count];
+                for (int i = 0; i < count; i++) {
+                    word.lists[i] = in.readInt();
+                    word.meanings[i] = readString(in);
+                    ret.listWords.get(word.lists[i]).add(id);
+                }
+                ret.words.add(word);
+                ret.byKey.put(keyOf(word.word), id);
+            }
+            readPostings(in, ret.grams);
+            readPostings(in, ret.tokens);
+            return ret;
+        } catch (Exception e) {
+            // Every list will be indexed again
+            e.printStackTrace();
+            return new SearchIndex();
+        }
+    }
+
+    // Lower-case words and meaning tokens; every Han character
+    // is a token of its own, since such meanings have no spaces
+    static Set<String> tokensOf(String text) {
+        Set<String> ret = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); ) {
+            int c = lower.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                addToken(ret, token);
+                ret.add(new String(Character.toChars(c)));
+            } else if (Character.isLetterOrDigit(c)) {
+                token.appendCodePoint(c);
+            } else {
+                addToken(ret, token);
+            }
+        }
+        addToken(ret, token);
+        return ret;
+    }
+
+    private static void addToken(Set<String> tokens, StringBuilder token) {
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+            token.setLength(0);
+        }
+    }
+
+    // Trigrams of a lower-case word padded with '$' at both ends,
+    // so short words and the first and last letters count too
+    static Set<String> gramsOf(String lower) {
+        String padded = "$" + lower + "$";
+        Set<String> ret = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            ret.add(padded.substring(i, i + 3));
+        }
+        if (ret.isEmpty()) {
+            ret.add(padded);
+        }
+        return ret;
+    }
+
+    // Levenshtein distance of a and b, or max + 1 once it
+    // is known to be above max
+    static int distance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    // Id of word, added to the index if it is new
+    private int idOf(String word) {
+        String key = keyOf(word);
+        Integer id = byKey.get(key);
+        if (id != null) {
+            return id;
+        }
+        int ret = words.size();
+        Word entry = new Word(word);
+        words.add(entry);
+        byKey.put(key, ret);
+        for (String gram: gramsOf(entry.lower)) {
+            grams.computeIfAbsent(gram, k -> new Postings(4)).add(ret);
+        }
+        return ret;
+    }
+
+    private int listIdOf(String list) {
+        Integer id = listIds.get(list);
+        if (id == null) {
+            id = listNames.size();
+            listNames.add(list);
+            listIds.put(list, id);
+            listWords.add(new Postings(4));
+        }
+        return id;
+    }
+
+    private static void removeFrom(Word word, int listId) {
+        int at = indexOf(word.lists, listId);
+        if (at < 0) {
+            return;
+        }
+        int last = word.lists.length - 1;
+        word.lists[at] = word.lists[last];
+        word.meanings[at] = word.meanings[last];
+        word.lists = Arrays.copyOf(word.lists, last);
+        word.meanings = Arrays.copyOf(word.meanings, last);
+    }
+
+    private Match matchOf(Word word, int distance) {
+        List<String> lists = new ArrayList<>(word.lists.length);
+        for (int list: word.lists) {
+            lists.add(listNames.get(list));
+        }
+        return new Match(word.word, distance, lists, Arrays.asList(word.meanings.clone()));
+    }
+
+    private void ensureCounts() {
+        if (counts.length < words.size()) {
+            counts = new int[Math.max(words.size(), counts.length * 2)];
+        }
+    }
+
+    private static String keyOf(String word) {
+        return word.toLowerCase(Locale.ROOT) + KEY_SEPARATOR + word;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writePostings(DataOutputStream out, Map<String, Postings> postings, int[] newIds)
+            throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, Postings> entry: postings.entrySet()) {
+            Postings p = entry.getValue();
+            int live = 0;
+            for (int i = 0; i < p.size; i++) {
+                if (newIds[p.ids[i]] >= 0) {
+                    live++;
+                }
+            }
+            // Renumbered ids are sorted again, and a word whose meaning
+            // changed back and forth is only kept once
+            int[] ids = new int[live];
+            int n = 0;
+            for (int i = 0; i < p.size; i++) {
+                if (newIds[p.ids[i]] >= 0) {
+                    ids[n++] = newIds[p.ids[i]];
+                }
+            }
+            Arrays.sort(ids);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            writeString(out, entry.getKey());
+            out.writeInt(distinct);
+            ByteBuffer bytes = ByteBuffer.allocate(distinct * 4);
+            bytes.asIntBuffer().put(ids, 0, distinct);
+            out.write(bytes.array());
+        }
+    }
+
+    private static void readPostings(DataInputStream in, Map<String, Postings> postings) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            int size = in.readInt();
+            Postings p = new Postings(size);
+            byte[] bytes = new byte[size * 4];
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asIntBuffer().get(p.ids, 0, size);
+            p.size = size;
+            if (size > 0) {
+                postings.put(key, p);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
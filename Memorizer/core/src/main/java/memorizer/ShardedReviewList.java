@@ -0,0 +1,363 @@
+package memorizer;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+import java.util.zip.GZIPOutputStream;
+
+// The review list split by word hash into a fixed number of shards.
+// Shards live in dir/review.shards as NNN-of-MMM.json (or .json.gz);
+// the file "layout" there holds the number of shards. Every change marks
+// the shard of its word dirty, and only dirty shards are written again,
+// each into a temp file that is then renamed over the old one. Shards
+// are read in parallel
+public class ShardedReviewList extends AbstractMap<String, String> implements WordIdMap {
+
+    public static final String DIR_NAME = "review.shards";
+    private static final String LAYOUT = "layout";
+
+    private final CompactWordMap[] shards;
+    private final boolean[] dirty;
+    // Whether the layout file still has to be written
+    private volatile boolean layoutDirty;
+    // Shards whose last write failed, marked dirty again on the next save
+    private final Queue<Integer> failed = new ConcurrentLinkedQueue<>();
+
+    // Empty list of count shards, none of them on disk yet
+    public ShardedReviewList(WordStore store, int count) {
+        this(newShards(store, count));
+        Arrays.fill(dirty, true);
+        layoutDirty = true;
+    }
+
+    private ShardedReviewList(CompactWordMap[] shards) {
+        this.shards = shards;
+        dirty = new boolean[shards.length];
+    }
+
+    // Whether dir holds a sharded review list
+    public static boolean exists(File dir) {
+        return new File(new File(dir, DIR_NAME), LAYOUT).isFile();
+    }
+
+    // Whether the shards in dir are gzip-compressed
+    public static boolean isCompressed(File dir) {
+        File[] files = new File(dir, DIR_NAME).listFiles();
+        if (files != null) {
+            for (File file: files) {
+                if (WordListReader.isCompressed(file)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Read the shards stored in dir, all at once
+    public static ShardedReviewList load(File dir, WordStore store, Metrics metrics) throws IOException {
+        File shardDir = new File(dir, DIR_NAME);
+        int count;
+        try (Scanner in = new Scanner(new File(shardDir, LAYOUT), "UTF-8")) {
+            count = in.nextInt();
+        } catch (NoSuchElementException e) {
+            throw new IOException("Bad layout in " + shardDir, e);
+        }
+        List<ForkJoinTask<CompactWordMap>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            File file = DirectoryCatalog.jsonFile(shardDir, baseName(i, count));
+            tasks.add(ForkJoinPool.commonPool().submit(() -> readShard(file, store, metrics)));
+        }
+        CompactWordMap[] shards = new CompactWordMap[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                shards[i] = tasks.get(i).join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new ShardedReviewList(shards);
+    }
+
+    // Number of shards
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // Number of shards changed since they were last saved
+    public int dirtyCount() {
+        int ret = 0;
+        for (boolean d: dirty) {
+            if (d) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    // Have every shard written again, e.g. in another format
+    public void markAllDirty() {
+        Arrays.fill(dirty, true);
+    }
+
+    // Writes that bring the files in dir up to date, keyed by the
+    // file they rewrite and in the order they must run; shards are
+    // copied now, so the list can change while they run. The shards
+    // count as saved from here on, unless a write fails
+    public Map<String, Runnable> takeWrites(File dir, boolean compressed, Metrics metrics) {
+        for (Integer shard; (shard = failed.poll()) != null; ) {
+            dirty[shard] = true;
+        }
+        File shardDir = new File(dir, DIR_NAME);
+        int count = shards.length;
+        Map<String, Runnable> ret = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (!dirty[i]) {
+                continue;
+            }
+            dirty[i] = false;
+            int shard = i;
+            CompactWordMap snapshot = new CompactWordMap(shards[i]);
+            ret.put(DIR_NAME + "/" + baseName(i, count), () -> {
+                try {
+                    writeShard(shardDir, baseName(shard, count), snapshot, compressed, metrics);
+                } catch (IOException e) {
+                    failed.add(shard);
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        if (layoutDirty) {
+            layoutDirty = false;
+            // Written last, so a crash before it leaves the old layout in place
+            ret.put(DIR_NAME + "/" + LAYOUT, () -> {
+                if (!failed.isEmpty()) {
+                    layoutDirty = true;
+                    throw new IllegalStateException("Shards missing, keeping the old layout of " + shardDir);
+                }
+                try {
+                    AtomicFiles.write(new File(shardDir, LAYOUT), out -> out.write(
+                            String.valueOf(count).getBytes(StandardCharsets.UTF_8)));
+                    removeOtherLayouts(shardDir, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return ret;
+    }
+
+    @Override
+    public int size() {
+        int ret = 0;
+        for (CompactWordMap shard: shards) {
+            ret += shard.size();
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && shards[shardOf((String) key)].containsKey(key);
+    }
+
+    @Override
+    public String get(Object key) {
+        return key instanceof String ? shards[shardOf((String) key)].get(key) : null;
+    }
+
+    @Override
+    public String put(String word, String meaning) {
+        int shard = shardOf(word);
+        String old = shards[shard].put(word, meaning);
+        if (!meaning.equals(old)) {
+            dirty[shard] = true;
+        }
+        return old;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int shard = shardOf((String) key);
+        String old = shards[shard].remove(key);
+        if (old != null) {
+            dirty[shard] = true;
+        }
+        return old;
+    }
+
+    @Override
+    public WordStore getStore() {
+        return shards[0].getStore();
+    }
+
+    @Override
+    public int putId(int word, int meaning) {
+        // The store keeps String.hashCode, so the shard is the same
+        // as for the word as a String
+        int shard = shardOf(getStore().hashOf(word));
+        int old = shards[shard].putId(word, meaning);
+        if (old != meaning) {
+            dirty[shard] = true;
+        }
+        return old;
+    }
+
+    @Override
+    public void removeIdsIf(IntPredicate word) {
+        for (int i = 0; i < shards.length; i++) {
+            int size = shards[i].size();
+            shards[i].removeIdsIf(word);
+            if (shards[i].size() != size) {
+                dirty[i] = true;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < shards.length; i++) {
+            if (!shards[i].isEmpty()) {
+                shards[i].clear();
+                dirty[i] = true;
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public int size() {
+                return ShardedReviewList.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int shard = -1;
+                    private Iterator<Entry<String, String>> current = Collections.emptyIterator();
+                    // Shard and iterator of the entry returned last
+                    private int last = -1;
+                    private Iterator<Entry<String, String>> lastIterator;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!current.hasNext() && shard + 1 < shards.length) {
+                            current = shards[++shard].entrySet().iterator();
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = shard;
+                        lastIterator = current;
+                        return current.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastIterator == null) {
+                            throw new IllegalStateException();
+                        }
+                        lastIterator.remove();
+                        lastIterator = null;
+                        dirty[last] = true;
+                    }
+                };
+            }
+        };
+    }
+
+    // Shard a word belongs to; String.hashCode is fixed by the
+    // language, so words stay in their shard across runs
+    private int shardOf(String word) {
+        return shardOf(word.hashCode());
+    }
+
+    private int shardOf(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private static CompactWordMap[] newShards(WordStore store, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + count);
+        }
+        CompactWordMap[] ret = new CompactWordMap[count];
+        for (int i = 0; i < count; i++) {
+            ret[i] = new CompactWordMap(store);
+        }
+        return ret;
+    }
+
+    private static String baseName(int shard, int count) {
+        return String.format("%03d-of-%03d", shard, count);
+    }
+
+    private static CompactWordMap readShard(File file, WordStore store, Metrics metrics) {
+        CompactWordMap ret = new CompactWordMap(store);
+        if (!file.exists()) {
+            return ret;
+        }
+        try (Metrics.Sample sample = metrics.start("reviewShard.read").target(file.getName())) {
+            WordListReader reader = new WordListReader();
+            reader.read(file, ret);
+            sample.bytes(reader.getBytesRead()).entries(reader.getEntriesLoaded());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ret;
+    }
+
+    private static void writeShard(File shardDir, String baseName, CompactWordMap shard,
+                                   boolean compressed, Metrics metrics) throws IOException {
+        String plain = baseName + ".json";
+        String gzip = baseName + DirectoryCatalog.GZIP_EXTENSION;
+        File file = new File(shardDir, compressed ? gzip : plain);
+        try (Metrics.Sample sample = metrics.start("reviewShard.write").target(file.getName())) {
+            Memorizer.WordList list = new Memorizer.WordList();
+            list.name = "review";
+            list.list = shard;
+            AtomicFiles.write(file, out -> {
+                OutputStream target = compressed ? new GZIPOutputStream(out, 1 << 16) : out;
+                Writer writer = new OutputStreamWriter(target, StandardCharsets.UTF_8);
+                new Gson().toJson(list, writer);
+                writer.flush();
+                if (compressed) {
+                    ((GZIPOutputStream) target).finish();
+                }
+            });
+            sample.bytes(file.length()).entries(shard.size());
+        }
+        // The other form is stale now
+        new File(shardDir, compressed ? plain : gzip).delete();
+    }
+
+    // Delete the shards of earlier layouts
+    private static void removeOtherLayouts(File shardDir, int count) {
+        String suffix = String.format("-of-%03d", count);
+        File[] files = shardDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file: files) {
+            String name = file.getName();
+            if (!name.equals(LAYOUT) && !WordListReader.nameOf(name).endsWith(suffix)) {
+                file.delete();
+            }
+        }
+    }
+}
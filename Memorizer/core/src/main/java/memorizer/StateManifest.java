@@ -0,0 +1,318 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Commits the state quit() leaves behind, review.json and count.txt,
+// as one transaction, numbered by a generation that grows by one each
+// time. A commit
+//   1. writes every file as <name>.<generation>.gen next to it,
+//   2. forces them onto the disk together, once all are written,
+//   3. records the generation, the total count and the length and
+//      CRC32 of every file in state.manifest, forced and renamed into
+//      place: from here on the commit has happened,
+//   4. renames every live file to <name>.<previous generation>.gen
+//      and the new one over it, and forces the directory.
+// A crash before 3 leaves the old files and manifest alone; a crash
+// after it leaves the new files staged, and recover() renames them
+// into place at the next start. The files of the generation before
+// are kept, so a live file that can no longer be read can be put back
+// as it was one quit earlier instead of starting over. If the manifest
+// itself cannot be read, no staged file is taken for uncommitted: they
+// stay until the next commit, which numbers past them
+public class StateManifest {
+
+    public static final String FILE_NAME = "state.manifest";
+    public static final String STAGED_EXTENSION = ".gen";
+
+    private static final int MAGIC = 0x4d534d31; // "MSM1"
+    private static final Pattern STAGED = Pattern.compile("(.+)\\.(\\d+)" + Pattern.quote(STAGED_EXTENSION));
+
+    // One committed state
+    public static class Generation {
+        public final long number;
+        public final int totalCount;
+        // Length and CRC32 of every file, by name
+        private final Map<String, long[]> files;
+
+        Generation(long number, int totalCount, Map<String, long[]> files) {
+            this.number = number;
+            this.totalCount = totalCount;
+            this.files = files;
+        }
+
+        public Set<String> names() {
+            return files.keySet();
+        }
+
+        // Whether file holds what this generation wrote as name
+        public boolean matches(String name, File file) {
+            long[] expected = files.get(name);
+            if (expected == null || !file.isFile() || file.length() != expected[0]) {
+                return false;
+            }
+            try {
+                return checksum(file) == expected[1];
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private final File dir;
+    // The last two generations committed, newest first
+    private final List<Generation> generations;
+    // Newest generation staged in dir when the manifest could not be
+    // read, 0 if it could
+    private final long unreadable;
+
+    private StateManifest(File dir, List<Generation> generations, long unreadable) {
+        this.dir = dir;
+        this.generations = generations;
+        this.unreadable = unreadable;
+    }
+
+    // Manifest of dir, empty if there is none or it cannot be read
+    public static StateManifest open(File dir) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return new StateManifest(dir, new ArrayList<>(), 0);
+        }
+        try {
+            return new StateManifest(dir, read(Files.readAllBytes(file.toPath())), 0);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new StateManifest(dir, new ArrayList<>(), newestStaged(dir));
+        }
+    }
+
+    // Newest generation committed, null if none
+    public synchronized Generation current() {
+        return generations.isEmpty() ? null : generations.get(0);
+    }
+
+    // Finish a commit cut short by a crash: files staged for the
+    // current generation are renamed into place, files staged for a
+    // generation never committed are deleted. Returns the number of
+    // files renamed or deleted
+    public synchronized int recover() {
+        Generation current = current();
+        // Without a readable manifest every staged file may be the only
+        // good copy of its file, so none counts as never committed
+        long committed = current == null ? unreadable : current.number;
+        int ret = 0;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        for (File file: files) {
+            Matcher staged = STAGED.matcher(file.getName());
+            if (!staged.matches()) {
+                continue;
+            }
+            long number = Long.parseLong(staged.group(2));
+            try {
+                if (number > committed) {
+                    file.delete();
+                    ret++;
+                } else if (current != null && number == committed && current.files.containsKey(staged.group(1))) {
+                    install(staged.group(1), current);
+                    ret++;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (ret > 0) {
+            AtomicFiles.syncDirectory(dir);
+        }
+        return ret;
+    }
+
+    // Commit the given files and totalCount as the next generation
+    public synchronized Generation commit(int totalCount, Map<String, AtomicFiles.Content> contents)
+            throws IOException {
+        Generation previous = current();
+        long number = previous == null ? unreadable + 1 : previous.number + 1;
+        Map<String, long[]> files = new LinkedHashMap<>();
+        List<File> staged = new ArrayList<>();
+        try {
+            for (Map.Entry<String, AtomicFiles.Content> content: contents.entrySet()) {
+                File file = stagedFile(content.getKey(), number);
+                staged.add(file);
+                CRC32 crc = new CRC32();
+                try (OutputStream out = new CheckedOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(file), 1 << 16), crc)) {
+                    content.getValue().writeTo(out);
+                }
+                files.put(content.getKey(), new long[] {file.length(), crc.getValue()});
+            }
+            // Forced only once all are written, so that the disk can
+            // flush them together
+            for (File file: staged) {
+                AtomicFiles.sync(file);
+            }
+        } catch (IOException e) {
+            for (File file: staged) {
+                file.delete();
+            }
+            throw e;
+        }
+        Generation next = new Generation(number, totalCount, files);
+        List<Generation> kept = previous == null ? Collections.singletonList(next) : Arrays.asList(next, previous);
+        File manifest = new File(dir, FILE_NAME);
+        File temp = AtomicFiles.tempFor(manifest);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            write(out, kept);
+        }
+        AtomicFiles.sync(temp);
+        AtomicFiles.replace(temp, manifest);
+        generations.clear();
+        generations.addAll(kept);
+        for (String name: files.keySet()) {
+            install(name, next);
+        }
+        AtomicFiles.syncDirectory(dir);
+        deleteStagedBefore(previous == null ? number : previous.number);
+        return next;
+    }
+
+    // Put back the newest kept copy of name that is still as its
+    // generation wrote it. Returns that generation, or null if there
+    // is none and name stays as it is
+    public synchronized Generation restore(String name) {
+        for (Generation generation: generations) {
+            File copy = stagedFile(name, generation.number);
+            if (generation.matches(name, copy)) {
+                try {
+                    // Copied, so that it is there to restore again
+                    File temp = AtomicFiles.tempFor(new File(dir, name));
+                    Files.copy(copy.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    AtomicFiles.sync(temp);
+                    AtomicFiles.replace(temp, new File(dir, name));
+                    AtomicFiles.syncDirectory(dir);
+                    return generation;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Move the file staged for name in generation over the live one,
+    // keeping the live one as the copy of the generation before
+    private void install(String name, Generation generation) throws IOException {
+        File live = new File(dir, name);
+        File staged = stagedFile(name, generation.number);
+        if (!staged.isFile()) {
+            return;
+        }
+        if (live.isFile()) {
+            AtomicFiles.replace(live, stagedFile(name, generation.number - 1));
+        }
+        AtomicFiles.replace(staged, live);
+    }
+
+    // Delete the copies of generations older than oldest
+    private void deleteStagedBefore(long oldest) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file: files) {
+            Matcher staged = STAGED.matcher(file.getName());
+            if (staged.matches() && Long.parseLong(staged.group(2)) < oldest) {
+                file.delete();
+            }
+        }
+    }
+
+    // Highest generation of the files staged in dir
+    private static long newestStaged(File dir) {
+        long ret = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file: files) {
+                Matcher staged = STAGED.matcher(file.getName());
+                if (staged.matches()) {
+                    ret = Math.max(ret, Long.parseLong(staged.group(2)));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private File stagedFile(String name, long number) {
+        return new File(dir, name + "." + number + STAGED_EXTENSION);
+    }
+
+    private static void write(DataOutputStream out, List<Generation> generations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeInt(generations.size());
+        for (Generation generation: generations) {
+            data.writeLong(generation.number);
+            data.writeInt(generation.totalCount);
+            data.writeInt(generation.files.size());
+            for (Map.Entry<String, long[]> file: generation.files.entrySet()) {
+                data.writeUTF(file.getKey());
+                data.writeLong(file.getValue()[0]);
+                data.writeLong(file.getValue()[1]);
+            }
+        }
+        data.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        bytes.writeTo(out);
+        out.writeLong(crc.getValue());
+    }
+
+    private static List<Generation> read(byte[] bytes) throws IOException {
+        if (bytes.length < 8) {
+            throw new IOException("Damaged " + FILE_NAME);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+        data.skipBytes(bytes.length - 8);
+        if (data.readLong() != crc.getValue()) {
+            throw new IOException("Damaged " + FILE_NAME);
+        }
+        data = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a state manifest");
+        }
+        int count = data.readInt();
+        List<Generation> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long number = data.readLong();
+            int totalCount = data.readInt();
+            int files = data.readInt();
+            Map<String, long[]> lengths = new LinkedHashMap<>();
+            for (int j = 0; j < files; j++) {
+                lengths.put(data.readUTF(), new long[] {data.readLong(), data.readLong()});
+            }
+            ret.add(new Generation(number, totalCount, lengths));
+        }
+        return ret;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
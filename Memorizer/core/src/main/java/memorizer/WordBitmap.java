@@ -0,0 +1,504 @@
+package memorizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed set of word IDs in the style of Roaring bitmaps.
+// IDs are split by their high 16 bits into containers; a container
+// holds its low 16 bits as a sorted char array while it has at most
+// 4096 of them and as a 65536-bit bitmap above that. Union and
+// difference work container by container, on bitmaps 64 IDs per long,
+// and mostly in place. On disk every container takes the smallest of
+// the array, bitmap and run-length forms
+public class WordBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUNS = 2;
+
+    // The IDs sharing one high half
+    private static final class Container {
+        // Sorted low halves; null in bitmap form
+        char[] array;
+        // One bit per low half; null in array form
+        long[] bits;
+        int cardinality;
+
+        Container(int capacity) {
+            array = new char[capacity];
+        }
+
+        Container(Container other) {
+            array = other.array == null ? null : Arrays.copyOf(other.array, Math.max(1, other.cardinality));
+            bits = other.bits == null ? null : other.bits.clone();
+            cardinality = other.cardinality;
+        }
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & 1L << low) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        // Return whether low was added
+        boolean add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | 1L << low;
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int at = Arrays.binarySearch(array, 0, cardinality, low);
+            if (at >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            at = -at - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_MAX, array.length * 2));
+            }
+            System.arraycopy(array, at, array, at + 1, cardinality - at);
+            array[at] = low;
+            cardinality++;
+            return true;
+        }
+
+        // Return whether low was removed
+        boolean remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before & ~(1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                cardinality--;
+                if (cardinality <= ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+            int at = Arrays.binarySearch(array, 0, cardinality, low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(array, at + 1, array, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        // Smallest low half >= from, or -1
+        int next(int from) {
+            if (bits == null) {
+                int at = Arrays.binarySearch(array, 0, cardinality, (char) from);
+                at = at >= 0 ? at : -at - 1;
+                return at < cardinality ? array[at] : -1;
+            }
+            int word = from >>> 6;
+            long w = bits[word] & -1L << from;
+            while (true) {
+                if (w != 0) {
+                    return word * 64 + Long.numberOfTrailingZeros(w);
+                }
+                if (++word == BITMAP_WORDS) {
+                    return -1;
+                }
+                w = bits[word];
+            }
+        }
+
+        void or(Container other) {
+            if (bits == null && other.bits == null && cardinality + other.cardinality <= ARRAY_MAX) {
+                mergeArrays(other);
+                return;
+            }
+            if (bits == null) {
+                toBitmap();
+            }
+            if (other.bits != null) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    bits[i] |= other.bits[i];
+                    count += Long.bitCount(bits[i]);
+                }
+                cardinality = count;
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    char low = other.array[i];
+                    long before = bits[low >>> 6];
+                    bits[low >>> 6] = before | 1L << low;
+                    if (before != bits[low >>> 6]) {
+                        cardinality++;
+                    }
+                }
+            }
+        }
+
+        void andNot(Container other) {
+            if (bits != null && other.bits != null) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    bits[i] &= ~other.bits[i];
+                    count += Long.bitCount(bits[i]);
+                }
+                cardinality = count;
+            } else if (bits != null) {
+                for (int i = 0; i < other.cardinality; i++) {
+                    char low = other.array[i];
+                    long before = bits[low >>> 6];
+                    bits[low >>> 6] = before & ~(1L << low);
+                    if (before != bits[low >>> 6]) {
+                        cardinality--;
+                    }
+                }
+            } else {
+                // Keep the lows other lacks, in place
+                int kept = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(array[i])) {
+                        array[kept++] = array[i];
+                    }
+                }
+                cardinality = kept;
+            }
+            if (bits != null && cardinality <= ARRAY_MAX / 2) {
+                toArray();
+            }
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | array[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = bits[i];
+                while (w != 0) {
+                    action.accept(high | i * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        private void mergeArrays(Container other) {
+            char[] merged = new char[Math.max(array.length, cardinality + other.cardinality)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cardinality && j < other.cardinality) {
+                char a = array[i];
+                char b = other.array[j];
+                merged[k++] = a <= b ? a : b;
+                i += a <= b ? 1 : 0;
+                j += b <= a ? 1 : 0;
+            }
+            while (i < cardinality) {
+                merged[k++] = array[i++];
+            }
+            while (j < other.cardinality) {
+                merged[k++] = other.array[j++];
+            }
+            array = merged;
+            cardinality = k;
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            char[] lows = new char[Math.max(1, cardinality)];
+            int k = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = bits[i];
+                while (w != 0) {
+                    lows[k++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            array = lows;
+            bits = null;
+        }
+
+        // Number of runs of consecutive lows
+        int runs() {
+            int ret = 0;
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (i == 0 || array[i] != array[i - 1] + 1) {
+                        ret++;
+                    }
+                }
+                return ret;
+            }
+            long carry = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = bits[i];
+                // Bits set whose lower neighbour is clear start a run
+                ret += Long.bitCount(w & ~(w << 1 | carry));
+                carry = w >>> 63;
+            }
+            return ret;
+        }
+    }
+
+    // High halves, sorted, and their containers
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public WordBitmap() {
+    }
+
+    // Copy of other
+    public WordBitmap(WordBitmap other) {
+        keys = Arrays.copyOf(other.keys, Math.max(4, other.size));
+        containers = new Container[keys.length];
+        for (int i = 0; i < other.size; i++) {
+            containers[i] = new Container(other.containers[i]);
+        }
+        size = other.size;
+    }
+
+    public boolean contains(int id) {
+        int at = find((char) (id >>> 16));
+        return at >= 0 && containers[at].contains((char) id);
+    }
+
+    // Return whether id was added
+    public boolean add(int id) {
+        char high = (char) (id >>> 16);
+        int at = find(high);
+        if (at < 0) {
+            at = insert(-at - 1, high, new Container(4));
+        }
+        return containers[at].add((char) id);
+    }
+
+    // Return whether id was removed
+    public boolean remove(int id) {
+        int at = find((char) (id >>> 16));
+        if (at < 0 || !containers[at].remove((char) id)) {
+            return false;
+        }
+        if (containers[at].cardinality == 0) {
+            delete(at);
+        }
+        return true;
+    }
+
+    // Number of IDs in the set
+    public int cardinality() {
+        int ret = 0;
+        for (int i = 0; i < size; i++) {
+            ret += containers[i].cardinality;
+        }
+        return ret;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Remove every ID, keeping the arrays for reuse
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    // Add every ID of other
+    public void or(WordBitmap other) {
+        int i = 0;
+        for (int j = 0; j < other.size; j++) {
+            char high = other.keys[j];
+            while (i < size && keys[i] < high) {
+                i++;
+            }
+            if (i < size && keys[i] == high) {
+                containers[i].or(other.containers[j]);
+            } else {
+                insert(i, high, new Container(other.containers[j]));
+            }
+            i++;
+        }
+    }
+
+    // Remove every ID of other
+    public void andNot(WordBitmap other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                containers[i].andNot(other.containers[j]);
+            }
+            if (containers[i].cardinality > 0) {
+                keys[kept] = keys[i];
+                containers[kept++] = containers[i];
+            }
+        }
+        Arrays.fill(containers, kept, size, null);
+        size = kept;
+    }
+
+    // Smallest ID >= from, or -1
+    public int nextSetBit(int from) {
+        int at = find((char) (from >>> 16));
+        if (at >= 0) {
+            int low = containers[at].next(from & 0xFFFF);
+            if (low >= 0) {
+                return keys[at] << 16 | low;
+            }
+            at++;
+        } else {
+            at = -at - 1;
+        }
+        // The first ID of a later container
+        return at < size ? keys[at] << 16 | containers[at].next(0) : -1;
+    }
+
+    // Call action with every ID in ascending order
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    // Write the set; each container in its smallest form
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            int runs = c.runs();
+            out.writeChar(keys[i]);
+            out.writeChar(c.cardinality - 1);
+            if (4 * runs < Math.min(2 * c.cardinality, 8 * BITMAP_WORDS)) {
+                out.writeByte(RUNS);
+                out.writeChar(runs);
+                int start = c.next(0);
+                int end = start;
+                while (start >= 0) {
+                    int next = end < 0xFFFF ? c.next(end + 1) : -1;
+                    if (next != end + 1) {
+                        // Start and length - 1 of the run
+                        out.writeChar(start);
+                        out.writeChar(end - start);
+                        start = next;
+                    }
+                    end = next;
+                }
+            } else if (c.bits == null) {
+                out.writeByte(ARRAY);
+                for (int k = 0; k < c.cardinality; k++) {
+                    out.writeChar(c.array[k]);
+                }
+            } else {
+                out.writeByte(BITMAP);
+                for (long w: c.bits) {
+                    out.writeLong(w);
+                }
+            }
+        }
+    }
+
+    // Read a set written by write
+    // Throws IOException if what is read cannot have been written
+    public static WordBitmap read(DataInput in) throws IOException {
+        WordBitmap ret = new WordBitmap();
+        int count = in.readInt();
+        if (count < 0 || count > 1 << 16) {
+            throw new IOException("Bad container count " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            char high = in.readChar();
+            if (i > 0 && high <= ret.keys[i - 1]) {
+                throw new IOException("Containers out of order");
+            }
+            int cardinality = in.readChar() + 1;
+            byte form = in.readByte();
+            Container c;
+            if (form == BITMAP) {
+                c = new Container(0);
+                c.array = null;
+                c.bits = new long[BITMAP_WORDS];
+                for (int k = 0; k < BITMAP_WORDS; k++) {
+                    c.bits[k] = in.readLong();
+                    c.cardinality += Long.bitCount(c.bits[k]);
+                }
+            } else if (form == ARRAY || form == RUNS) {
+                c = new Container(Math.min(cardinality, ARRAY_MAX));
+                if (cardinality > ARRAY_MAX) {
+                    c.toBitmap();
+                }
+                if (form == ARRAY) {
+                    for (int k = 0; k < cardinality; k++) {
+                        c.add(in.readChar());
+                    }
+                } else {
+                    int runs = in.readChar();
+                    for (int r = 0; r < runs; r++) {
+                        int start = in.readChar();
+                        int end = Math.min(0xFFFF, start + in.readChar());
+                        for (int low = start; low <= end; low++) {
+                            c.add((char) low);
+                        }
+                        if (c.cardinality > cardinality) {
+                            throw new IOException("Runs hold more than " + cardinality + " IDs");
+                        }
+                    }
+                }
+            } else {
+                throw new IOException("Unknown container form " + form);
+            }
+            if (c.cardinality != cardinality) {
+                throw new IOException("Container holds " + c.cardinality + " IDs, not " + cardinality);
+            }
+            ret.insert(ret.size, high, c);
+        }
+        return ret;
+    }
+
+    // Index of the container for high, or -(insertion point) - 1
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private int insert(int at, char high, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = high;
+        containers[at] = c;
+        size++;
+        return at;
+    }
+
+    private void delete(int at) {
+        System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+        System.arraycopy(containers, at + 1, containers, at, size - at - 1);
+        containers[--size] = null;
+    }
+}
@@ -0,0 +1,333 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// One file holding a whole word directory, to move it between machines
+// and backups without copying hundreds of small files.
+//
+// Layout (big-endian):
+//   int magic, int version, long offset of the table of contents
+//   data: the content of every file, back to back
+//   table of contents: int count, then per file its path relative to
+//   the directory (writeUTF, "/" between directories), long offset,
+//   long length, long last modified time and long CRC32 of its content
+// Contents are copied between the files and the bundle with
+// FileChannel.transferTo/transferFrom, and checksums are taken over
+// memory-mapped files, so no content passes through the Java heap.
+// Files keep their modification times, so signatures that the review
+// bitmap and the list cache are checked against stay valid
+public class WordBundle {
+
+    public static final String EXTENSION = ".bundle";
+
+    private static final int MAGIC = 0x4d574231; // "MWB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    // Largest region mapped at once
+    private static final long MAP_CHUNK = 1 << 30;
+
+    // A file in the bundle
+    public static class Entry {
+        public final String path;
+        public final long offset;
+        public final long length;
+        public final long mtime;
+        public final long crc;
+
+        Entry(String path, long offset, long length, long mtime, long crc) {
+            this.path = path;
+            this.offset = offset;
+            this.length = length;
+            this.mtime = mtime;
+            this.crc = crc;
+        }
+
+        // List the file belongs to, or null if it is not part of a list
+        public String list() {
+            if (path.contains("/")) {
+                return null;
+            }
+            if (path.endsWith(WordJournal.EXTENSION)) {
+                return path.substring(0, path.length() - WordJournal.EXTENSION.length());
+            }
+            return DirectoryCatalog.listName(path);
+        }
+    }
+
+    // Outcome of one export or import
+    public static class Result {
+        public long files;
+        public long bytes;
+        // Files left alone because they were already the same
+        public long unchanged;
+        public long nanos;
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d bytes copied, %d unchanged in %.1f ms",
+                    files, bytes, unchanged, nanos / 1e6);
+        }
+    }
+
+    // The first bytes of a file, mapped into memory in chunks
+    // of at most MAP_CHUNK bytes
+    private static class Mapping {
+        private final MappedByteBuffer[] chunks;
+
+        Mapping(FileChannel channel, long length) throws IOException {
+            chunks = new MappedByteBuffer[(int) ((length + MAP_CHUNK - 1) / MAP_CHUNK)];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, i * MAP_CHUNK,
+                        Math.min(MAP_CHUNK, length - i * MAP_CHUNK));
+            }
+        }
+
+        // CRC32 of length bytes from offset
+        long checksum(long offset, long length) {
+            CRC32 crc = new CRC32();
+            for (long at = offset; at < offset + length; ) {
+                ByteBuffer chunk = chunks[(int) (at / MAP_CHUNK)].duplicate();
+                int from = (int) (at % MAP_CHUNK);
+                int to = (int) Math.min(chunk.limit(), from + offset + length - at);
+                chunk.limit(to).position(from);
+                crc.update(chunk);
+                at += to - from;
+            }
+            return crc.getValue();
+        }
+    }
+
+    private WordBundle() {
+    }
+
+    // Pack every file under dir into bundle
+    // Temp files and bundles found in dir are left out
+    public static Result export(File dir, File bundle) throws IOException {
+        long start = System.nanoTime();
+        Result ret = new Result();
+        List<String> paths = new ArrayList<>();
+        collect(dir, "", paths);
+        Collections.sort(paths);
+        List<Entry> entries = new ArrayList<>(paths.size());
+        File temp = AtomicFiles.tempFor(bundle);
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = HEADER_SIZE;
+            long[] mtimes = new long[paths.size()];
+            long[] lengths = new long[paths.size()];
+            for (int i = 0; i < paths.size(); i++) {
+                File file = new File(dir, paths.get(i));
+                mtimes[i] = file.lastModified();
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    lengths[i] = in.size();
+                    for (long done = 0; done < lengths[i]; ) {
+                        done += in.transferTo(done, lengths[i] - done, out.position(offset + done));
+                    }
+                }
+                offset += lengths[i];
+            }
+            // The checksums are taken over the bundle, mapped once,
+            // rather than over every small file mapped on its own
+            Mapping data = new Mapping(out, offset);
+            long at = HEADER_SIZE;
+            for (int i = 0; i < paths.size(); at += lengths[i++]) {
+                entries.add(new Entry(paths.get(i), at, lengths[i], mtimes[i], data.checksum(at, lengths[i])));
+                ret.bytes += lengths[i];
+            }
+            out.position(offset);
+            writeFully(out, tableOf(entries));
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(offset).flip();
+            out.position(0);
+            writeFully(out, header);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        AtomicFiles.replace(temp, bundle);
+        ret.files = entries.size();
+        ret.nanos = System.nanoTime() - start;
+        return ret;
+    }
+
+    // Table of contents of bundle
+    public static List<Entry> contents(File bundle) throws IOException {
+        try (FileChannel in = FileChannel.open(bundle.toPath(), StandardOpenOption.READ)) {
+            return contents(in);
+        }
+    }
+
+    // Names of the lists in bundle
+    public static SortedSet<String> lists(File bundle) throws IOException {
+        SortedSet<String> ret = new TreeSet<>();
+        for (Entry entry: contents(bundle)) {
+            if (entry.list() != null) {
+                ret.add(entry.list());
+            }
+        }
+        return ret;
+    }
+
+    // Unpack the files of bundle into dir: all of them if lists is
+    // empty, otherwise only the files of the given lists. A file that
+    // is already in dir with the same length and checksum is not
+    // written again. Every file is checked against its checksum before
+    // it is written and is replaced atomically, so a damaged entry
+    // stops the import without touching its file
+    public static Result unpack(File bundle, File dir, Collection<String> lists) throws IOException {
+        long start = System.nanoTime();
+        Result ret = new Result();
+        Set<String> wanted = new HashSet<>();
+        for (String list: lists) {
+            wanted.add(list.toLowerCase(Locale.ROOT));
+        }
+        String root = dir.getCanonicalPath() + File.separator;
+        try (FileChannel in = FileChannel.open(bundle.toPath(), StandardOpenOption.READ)) {
+            Mapping data = new Mapping(in, in.size());
+            for (Entry entry: contents(in)) {
+                String list = entry.list();
+                if (!wanted.isEmpty() && (list == null || !wanted.contains(list.toLowerCase(Locale.ROOT)))) {
+                    continue;
+                }
+                ret.files++;
+                if (data.checksum(entry.offset, entry.length) != entry.crc) {
+                    throw new IOException("Damaged bundle entry: " + entry.path);
+                }
+                File file = new File(dir, entry.path.replace('/', File.separatorChar));
+                // Whatever the path holds (a drive, "\", a link out of
+                // dir), the file must end up under dir
+                if (!file.getCanonicalPath().startsWith(root)) {
+                    throw new IOException("Bundle entry outside the directory: " + entry.path);
+                }
+                if (sameContent(file, entry)) {
+                    if (file.lastModified() != entry.mtime) {
+                        file.setLastModified(entry.mtime);
+                    }
+                    ret.unchanged++;
+                    continue;
+                }
+                // Files of review.shards and answers.history sit in
+                // directories that may not be there yet
+                File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Cannot create " + parent);
+                }
+                File temp = AtomicFiles.tempFor(file);
+                try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    in.position(entry.offset);
+                    for (long done = 0; done < entry.length; ) {
+                        long copied = out.transferFrom(in, done, entry.length - done);
+                        if (copied <= 0) {
+                            throw new EOFException("Bundle ends inside " + entry.path);
+                        }
+                        done += copied;
+                    }
+                } catch (IOException e) {
+                    temp.delete();
+                    throw e;
+                }
+                temp.setLastModified(entry.mtime);
+                AtomicFiles.replace(temp, file);
+                ret.bytes += entry.length;
+            }
+        }
+        ret.nanos = System.nanoTime() - start;
+        return ret;
+    }
+
+    private static List<Entry> contents(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(in, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a word bundle");
+        }
+        long tableOffset = header.getLong(8);
+        if (tableOffset < HEADER_SIZE || tableOffset > in.size()) {
+            throw new IOException("Damaged bundle: table of contents at " + tableOffset);
+        }
+        DataInputStream table = new DataInputStream(new ByteArrayInputStream(
+                toArray(in.map(FileChannel.MapMode.READ_ONLY, tableOffset, in.size() - tableOffset))));
+        int count = table.readInt();
+        if (count < 0) {
+            throw new IOException("Damaged bundle: " + count + " entries");
+        }
+        List<Entry> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry(table.readUTF(), table.readLong(), table.readLong(),
+                    table.readLong(), table.readLong());
+            if (entry.offset < HEADER_SIZE || entry.length < 0 || entry.offset + entry.length > tableOffset
+                    || entry.path.startsWith("/") || Arrays.asList(entry.path.split("/")).contains("..")) {
+                throw new IOException("Damaged bundle entry: " + entry.path);
+            }
+            ret.add(entry);
+        }
+        return ret;
+    }
+
+    // Paths of the files under dir, prefix being the path of dir
+    private static void collect(File dir, String prefix, List<String> paths) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + dir);
+        }
+        for (File file: files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                collect(file, prefix + name + "/", paths);
+            } else if (!name.endsWith(AtomicFiles.TEMP_EXTENSION) && !name.endsWith(EXTENSION)) {
+                paths.add(prefix + name);
+            }
+        }
+    }
+
+    private static ByteBuffer tableOf(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(bytes);
+        table.writeInt(entries.size());
+        for (Entry entry: entries) {
+            table.writeUTF(entry.path);
+            table.writeLong(entry.offset);
+            table.writeLong(entry.length);
+            table.writeLong(entry.mtime);
+            table.writeLong(entry.crc);
+        }
+        table.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static boolean sameContent(File file, Entry entry) throws IOException {
+        if (!file.isFile() || file.length() != entry.length) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new Mapping(in, entry.length).checksum(0, entry.length) == entry.crc;
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] ret = new byte[buffer.remaining()];
+        buffer.get(ret);
+        return ret;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Not a word bundle");
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package memorizer;
+
+import java.util.function.IntPredicate;
+
+// A word map that can be changed by the IDs its words and meanings
+// have in a WordStore, so that pairs read from a binary list go in and
+// out without any String being built
+interface WordIdMap {
+
+    // Store the IDs refer to
+    WordStore getStore();
+
+    // Map word to meaning, both given by ID
+    // Return the ID of the previous meaning, or -1
+    int putId(int word, int meaning);
+
+    // Remove every word whose ID matches
+    void removeIdsIf(IntPredicate word);
+}
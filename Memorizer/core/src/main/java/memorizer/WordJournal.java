@@ -0,0 +1,166 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Append-only journal of the changes made to one word list.
+// Every stored or deleted word becomes one small line at the end of
+// <name>.journal, so adding a word costs O(1) I/O instead of rewriting
+// <name>.json. The JSON snapshot plus the journal replayed on top of it
+// gives the current list; compaction folds the journal back into the
+// snapshot and empties it.
+// Each record is flushed to the OS as it is appended, so it survives
+// the process dying. It only reaches the disk itself when the journal
+// is synced or closed, so a power loss can drop the records appended
+// since then
+public class WordJournal implements Closeable {
+
+    public static final String EXTENSION = ".journal";
+
+    private static final String PUT = "+";
+    private static final String REMOVE = "-";
+
+    private final File file;
+    private final Gson gson = new Gson();
+    // Opened lazily, in append mode
+    private Writer out;
+    private FileOutputStream stream;
+    // Number of records written since the last compaction
+    private long records;
+
+    public WordJournal(File dir, String listName) {
+        this.file = new File(dir, listName + EXTENSION);
+    }
+
+    // Journal file belonging to the given list
+    public static File fileFor(File dir, String listName) {
+        return new File(dir, listName + EXTENSION);
+    }
+
+    // Record that word now means meaning
+    public synchronized void appendPut(String word, String meaning) throws IOException {
+        append(new String[] {PUT, word, meaning});
+    }
+
+    // Record that word has been deleted
+    public synchronized void appendRemove(String word) throws IOException {
+        append(new String[] {REMOVE, word});
+    }
+
+    // Number of records the journal holds
+    public synchronized long size() {
+        return records;
+    }
+
+    // Tell the journal how many records it already held on disk
+    // when it was opened, e.g. after replaying it
+    public synchronized void setSize(long records) {
+        this.records = records;
+    }
+
+    // Empty the journal after its content has been
+    // written into the snapshot
+    public synchronized void reset() throws IOException {
+        close();
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete journal " + file);
+        }
+        records = 0;
+    }
+
+    // Empty the journal unless records were appended since it held
+    // expected records, i.e. since the snapshot being written was taken
+    // Return whether it was emptied
+    public synchronized boolean resetIfSize(long expected) throws IOException {
+        if (records != expected) {
+            return false;
+        }
+        reset();
+        return true;
+    }
+
+    // Force the records appended so far to the disk
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            stream.getChannel().force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            try {
+                sync();
+            } finally {
+                out.close();
+                out = null;
+                stream = null;
+            }
+        }
+    }
+
+    // Replay the journal of a list on top of its snapshot
+    // Return the number of records applied; a torn last record left
+    // by a crash is ignored
+    public static long replay(File journalFile, Map<String, String> list) {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        long applied = 0;
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8)))) {
+            reader.setStrictness(Strictness.LENIENT);
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                reader.beginArray();
+                String op = reader.nextString();
+                String word = reader.nextString();
+                if (op.equals(PUT)) {
+                    list.put(word, reader.nextString());
+                } else {
+                    list.remove(word);
+                }
+                reader.endArray();
+                applied++;
+            }
+        } catch (EOFException | MalformedJsonException e) {
+            System.out.println("Ignoring incomplete record at the end of " + journalFile.getName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return applied;
+    }
+
+    // Whether the journal ends with a torn record, which means
+    // new records must not be appended before compacting it
+    public static boolean isTorn(File journalFile) {
+        if (!journalFile.exists() || journalFile.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        } catch (IOException e) {
+            e.printStackTrace();
+            return true;
+        }
+    }
+
+    private synchronized void append(String[] record) throws IOException {
+        if (out == null) {
+            stream = new FileOutputStream(file, true);
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+        out.write(gson.toJson(record));
+        out.write('\n');
+        out.flush();
+        records++;
+    }
+}
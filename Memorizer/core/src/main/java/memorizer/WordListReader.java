@@ -0,0 +1,182 @@
+package memorizer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.*;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Streaming reader for the word list files written by Memorizer.
+// Instead of gluing the whole file into one String and handing it
+// to Gson, pairs are pulled one at a time from a JsonReader and put
+// straight into WordList.list, so the peak heap stays close to the
+// size of the final map. Files ending in .gz are decompressed
+// while they are read.
+// Lists are written as UTF-8. Older versions wrote them in the
+// platform charset (GBK on a Chinese Windows), so a file that is not
+// valid UTF-8 is read again in the legacy charset: the platform
+// default, or -Dmemorizer.legacyCharset if set. The next save
+// rewrites such a list as UTF-8
+public class WordListReader {
+
+    // Rough size of one serialized pair ("word":"meaning",)
+    // used to presize the map from the file length
+    private static final int BYTES_PER_ENTRY = 32;
+    // Rough compression ratio of a gzip-compressed list
+    private static final int GZIP_RATIO = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Statistics of the last call to read
+    private int entriesLoaded;
+    private long bytesRead;
+    private boolean legacy;
+
+    // Read the word list stored in file
+    // If the file is empty, return an empty WordList
+    // named after the file
+    public Memorizer.WordList read(File file) throws IOException {
+        long length = isCompressed(file) ? file.length() * GZIP_RATIO : file.length();
+        return read(file, new HashMap<>(capacityFor(length)));
+    }
+
+    // Same as above, putting the pairs into target, which is empty
+    public Memorizer.WordList read(File file, Map<String, String> target) throws IOException {
+        entriesLoaded = 0;
+        bytesRead = 0;
+        legacy = false;
+        Memorizer.WordList ret = new Memorizer.WordList();
+        ret.name = nameOf(file.getName());
+        ret.list = target;
+        if (file.length() == 0) {
+            return ret;
+        }
+        try {
+            parse(file, ret, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            Charset charset = legacyCharset();
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                throw e;
+            }
+            legacy = true;
+            entriesLoaded = 0;
+            ret.name = nameOf(file.getName());
+            target.clear();
+            parse(file, ret, charset);
+        }
+        return ret;
+    }
+
+    // Whether the last read had to fall back to the legacy charset
+    public boolean usedLegacyCharset() {
+        return legacy;
+    }
+
+    static Charset legacyCharset() {
+        String name = System.getProperty("memorizer.legacyCharset");
+        return name == null ? Charset.defaultCharset() : Charset.forName(name);
+    }
+
+    // Pull the pairs of file, decoded strictly in charset, into ret
+    private void parse(File file, Memorizer.WordList ret, Charset charset) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+        InputStream in = isCompressed(file) ? new GZIPInputStream(counter, BUFFER_SIZE) : counter;
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(in, decoder), BUFFER_SIZE))) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (field.equals("name") && reader.peek() == JsonToken.STRING) {
+                    ret.name = reader.nextString();
+                } else if (field.equals("list") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String word = reader.nextName();
+                        ret.list.put(word, reader.nextString());
+                        entriesLoaded++;
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            bytesRead = counter.count;
+        }
+    }
+
+    // Number of pairs loaded by the last read
+    public int getEntriesLoaded() {
+        return entriesLoaded;
+    }
+
+    // Number of bytes consumed from disk by the last read
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    // Whether file holds gzip-compressed JSON
+    static boolean isCompressed(File file) {
+        return file.getName().endsWith(".gz");
+    }
+
+    // Strip the extension from a file name
+    static String nameOf(String fileName) {
+        int dot = fileName.indexOf(".");
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    // Initial HashMap capacity that avoids rehashing
+    // for a file of the given length
+    private static int capacityFor(long fileLength) {
+        long expected = Math.max(16, fileLength / BYTES_PER_ENTRY);
+        return (int) Math.min(1 << 30, expected * 4 / 3 + 1);
+    }
+
+    // Counts the bytes that pass through it
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package memorizer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+// Arena that stores every word and meaning once, as UTF-8 bytes,
+// and hands out an int ID for each distinct string.
+// The lists of a memorizer refer to strings by these IDs (see
+// CompactWordMap), so a pair that sits in toBeStored, toBeReviewed and
+// mistakeList at the same time costs a few ints per list instead of
+// one HashMap entry and two Strings each. Strings are never removed.
+// A store can be saved to words.store, which only grows: loading it
+// gives every string the ID it had before, so IDs stay the same
+// across runs. When the review list uses too few of its strings, quit
+// moves the list to a new store (see ReviewSet.compacted), which is
+// written over the old file with a new generation
+public class WordStore {
+
+    public static final String FILE_NAME = "words.store";
+
+    private static final int INITIAL_STRINGS = 1024;
+    private static final int MAGIC = 0x4d575331; // "MWS1"
+    private static final int HEADER = 12;
+
+    // UTF-8 bytes of all strings, back to back
+    private byte[] bytes = new byte[16 * INITIAL_STRINGS];
+    private int used;
+    // String id starts at offsets[id] and ends at offsets[id + 1]
+    private int[] offsets = new int[INITIAL_STRINGS + 1];
+    // String.hashCode of every string, to skip most byte comparisons
+    private int[] hashes = new int[INITIAL_STRINGS];
+    private int count;
+    // Open-addressing index; holds id + 1, 0 means empty
+    private int[] table = new int[2 * INITIAL_STRINGS];
+    // Tells stores apart; files written for one store, like
+    // ReviewSet bitmaps, only hold for the same generation
+    private long generation = new Random().nextLong();
+    // Strings in the file and its length, as of the last load or save
+    private int saved;
+    private long savedBytes;
+    // File still to be read by the first use, see loadLater
+    private File pending;
+
+    // Store holding the strings saved in file under the IDs they had,
+    // or a new empty store if file does not exist or cannot be read
+    // A string torn by a crash is left out
+    public static WordStore load(File file) {
+        WordStore ret = new WordStore();
+        if (!file.exists()) {
+            return ret;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (in.remaining() < HEADER || in.getInt() != MAGIC) {
+                throw new IOException("Not a word store: " + file);
+            }
+            ret.generation = in.getLong();
+            while (in.remaining() >= 8) {
+                int h = in.getInt();
+                int length = in.getInt();
+                if (length < 0 || length > in.remaining()) {
+                    break;
+                }
+                ret.addSaved(in.array(), in.position(), length, h);
+                in.position(in.position() + length);
+            }
+            ret.rehash(Math.max(2 * INITIAL_STRINGS, Integer.highestOneBit(ret.count) * 4));
+            ret.saved = ret.count;
+            ret.savedBytes = HEADER + 8L * ret.count + ret.used;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new WordStore();
+        }
+        return ret;
+    }
+
+    // Store that reads file as load does, but only on first use, so
+    // that it can be handed out before the file is read; whatever uses
+    // it first, or preload, reads it and the others wait
+    public static WordStore loadLater(File file) {
+        WordStore ret = new WordStore();
+        ret.pending = file;
+        return ret;
+    }
+
+    // Read the file given to loadLater now, if it has not been read
+    public synchronized void preload() {
+        if (pending == null) {
+            return;
+        }
+        WordStore read = load(pending);
+        pending = null;
+        bytes = read.bytes;
+        used = read.used;
+        offsets = read.offsets;
+        hashes = read.hashes;
+        count = read.count;
+        table = read.table;
+        generation = read.generation;
+        saved = read.saved;
+        savedBytes = read.savedBytes;
+    }
+
+    // Append the strings added since the last load or save to file,
+    // or write all of them if file is not what was last saved
+    public void save(File file) throws IOException {
+        ByteBuffer tail;
+        int from;
+        int to;
+        synchronized (this) {
+            preload();
+            boolean append = saved > 0 && file.length() == savedBytes;
+            from = append ? saved : 0;
+            to = count;
+            if (append && from == to) {
+                return;
+            }
+            tail = ByteBuffer.allocate((from == 0 ? HEADER : 0) + 8 * (to - from) + offsets[to] - offsets[from]);
+            if (from == 0) {
+                tail.putInt(MAGIC).putLong(generation);
+            }
+            for (int id = from; id < to; id++) {
+                tail.putInt(hashes[id]).putInt(offsets[id + 1] - offsets[id]);
+                tail.put(bytes, offsets[id], offsets[id + 1] - offsets[id]);
+            }
+        }
+        if (from == 0) {
+            AtomicFiles.write(file, out -> out.write(tail.array()));
+        } else {
+            try (OutputStream out = new FileOutputStream(file, true)) {
+                out.write(tail.array());
+            }
+        }
+        synchronized (this) {
+            saved = to;
+            savedBytes = file.length();
+        }
+    }
+
+    // Identifies this store and the stores loaded from its file
+    public synchronized long getGeneration() {
+        preload();
+        return generation;
+    }
+
+    // ID of s, adding s to the store if it is new
+    public synchronized int intern(String s) {
+        preload();
+        int h = s.hashCode();
+        byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        int slot = mix(h) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == h && equalsAt(id, encoded)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = add(encoded, h);
+        table[slot] = id + 1;
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    // ID of the string whose UTF-8 bytes are the length bytes of src at
+    // offset, adding it if it is new; no String is created
+    public synchronized int internUtf8(ByteBuffer src, int offset, int length) {
+        preload();
+        int h = hashUtf8(src, offset, length);
+        int mask = table.length - 1;
+        int slot = mix(h) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == h && equalsAt(id, src, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = reserve(length, h);
+        ByteBuffer view = src.duplicate();
+        view.position(offset);
+        view.get(bytes, offsets[id], length);
+        table[slot] = id + 1;
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    // Same as lookup, for a string given as UTF-8 bytes like internUtf8
+    public synchronized int lookupUtf8(ByteBuffer src, int offset, int length) {
+        preload();
+        int h = hashUtf8(src, offset, length);
+        int mask = table.length - 1;
+        int slot = mix(h) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == h && equalsAt(id, src, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // ID of s, or -1 if s is not in the store
+    public synchronized int lookup(String s) {
+        preload();
+        int h = s.hashCode();
+        int mask = table.length - 1;
+        int slot = mix(h) & mask;
+        byte[] encoded = null;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == h) {
+                if (encoded == null) {
+                    encoded = s.getBytes(StandardCharsets.UTF_8);
+                }
+                if (equalsAt(id, encoded)) {
+                    return id;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // The string with the given ID
+    public synchronized String get(int id) {
+        preload();
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    // UTF-8 bytes of the string with the given ID
+    public synchronized byte[] utf8(int id) {
+        preload();
+        return Arrays.copyOfRange(bytes, offsets[id], offsets[id + 1]);
+    }
+
+    // String.hashCode of the string with the given ID
+    public synchronized int hashOf(int id) {
+        preload();
+        return hashes[id];
+    }
+
+    // Number of distinct strings
+    public synchronized int size() {
+        preload();
+        return count;
+    }
+
+    // Bytes held by the arena and its index
+    public synchronized long footprint() {
+        preload();
+        return bytes.length + 4L * (offsets.length + hashes.length + table.length);
+    }
+
+    private int add(byte[] encoded, int h) {
+        return addSaved(encoded, 0, encoded.length, h);
+    }
+
+    // Add a string without indexing it; load() rehashes at the end
+    private int addSaved(byte[] source, int from, int length, int h) {
+        int id = reserve(length, h);
+        System.arraycopy(source, from, bytes, offsets[id], length);
+        return id;
+    }
+
+    // Make room for a new string of length bytes with hash h
+    // and return its ID; the caller copies the bytes in
+    private int reserve(int length, int h) {
+        if (used + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + length));
+        }
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            offsets = Arrays.copyOf(offsets, hashes.length + 1);
+        }
+        offsets[count] = used;
+        used += length;
+        offsets[count + 1] = used;
+        hashes[count] = h;
+        return count++;
+    }
+
+    private boolean equalsAt(int id, byte[] encoded) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != encoded.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (bytes[start + i] != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalsAt(int id, ByteBuffer src, int offset, int length) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] != src.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // String.hashCode of the string whose UTF-8 bytes are given,
+    // computed over the UTF-16 chars the bytes decode to
+    static int hashUtf8(ByteBuffer src, int offset, int length) {
+        int h = 0;
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int b = src.get(i) & 0xff;
+            if (b < 0x80) {
+                h = 31 * h + b;
+                i++;
+            } else if (b < 0xe0) {
+                h = 31 * h + ((b & 0x1f) << 6 | (src.get(i + 1) & 0x3f));
+                i += 2;
+            } else if (b < 0xf0) {
+                h = 31 * h + ((b & 0x0f) << 12 | (src.get(i + 1) & 0x3f) << 6 | (src.get(i + 2) & 0x3f));
+                i += 3;
+            } else {
+                int codePoint = (b & 0x07) << 18 | (src.get(i + 1) & 0x3f) << 12
+                        | (src.get(i + 2) & 0x3f) << 6 | (src.get(i + 3) & 0x3f);
+                h = 31 * h + Character.highSurrogate(codePoint);
+                h = 31 * h + Character.lowSurrogate(codePoint);
+                i += 4;
+            }
+        }
+        return h;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+        table = newTable;
+    }
+
+    // Spread the bits of a hash code before masking
+    static int mix(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
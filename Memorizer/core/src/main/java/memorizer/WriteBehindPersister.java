@@ -0,0 +1,176 @@
+package memorizer;
+
+import java.io.Closeable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Writes files on a background thread so the interactive loop never
+// waits on disk.
+// Every write is keyed by the file it rewrites; a write submitted while
+// an older one for the same key is still queued replaces it, so a list
+// saved several times in a row is only written once. Writes must work
+// on snapshots the caller no longer changes. The queue holds at most
+// capacity distinct keys; submitting a new key to a full queue waits
+// for the writer to catch up. flush() waits until everything submitted
+// so far is on disk, close() also stops the thread, and a shutdown hook
+// flushes whatever is left when the JVM exits
+public class WriteBehindPersister implements Closeable {
+
+    private final Map<String, Runnable> pending = new LinkedHashMap<>();
+    private final int capacity;
+    private final Metrics metrics;
+    private final Thread writer;
+    private final Thread hook;
+    // Key being written right now, or null
+    private String writing;
+    private boolean closed;
+    // Threads interrupted while waiting on this persister
+    private final Set<Thread> interrupted = new HashSet<>();
+
+    public WriteBehindPersister(String name, int capacity, Metrics metrics) {
+        this.capacity = capacity;
+        this.metrics = metrics;
+        writer = new Thread(this::run, name);
+        writer.setDaemon(true);
+        writer.start();
+        hook = new Thread(this::flush, name + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    // Queue write for key, replacing a queued write for the same key
+    // After close() the write runs on the calling thread
+    public void submit(String key, Runnable write) {
+        synchronized (this) {
+            while (!closed && !pending.containsKey(key) && pending.size() >= capacity) {
+                metrics.add("writeBehind.full", 1);
+                waitUninterruptibly();
+            }
+            if (!closed) {
+                if (pending.remove(key) != null) {
+                    metrics.add("writeBehind.coalesced", 1);
+                }
+                pending.put(key, write);
+                metrics.add("writeBehind.submitted", 1);
+                notifyAll();
+                restoreInterrupt();
+                return;
+            }
+            restoreInterrupt();
+        }
+        write.run();
+    }
+
+    // Wait until no write for key is queued or running,
+    // so the file can be read or deleted
+    public synchronized void await(String key) {
+        while (pending.containsKey(key) || key.equals(writing)) {
+            waitUninterruptibly();
+        }
+        restoreInterrupt();
+    }
+
+    // Wait until every write submitted so far is done
+    public synchronized void flush() {
+        long start = System.nanoTime();
+        while (!pending.isEmpty() || writing != null) {
+            waitUninterruptibly();
+        }
+        restoreInterrupt();
+        metrics.record("writeBehind.flush", System.nanoTime() - start);
+    }
+
+    // Wait until every write submitted so far whose key starts with
+    // prefix is done, leaving the writes of other keys to run later
+    public synchronized void flush(String prefix) {
+        long start = System.nanoTime();
+        while (hasPending(prefix)) {
+            waitUninterruptibly();
+        }
+        restoreInterrupt();
+        metrics.record("writeBehind.flush", System.nanoTime() - start);
+    }
+
+    private boolean hasPending(String prefix) {
+        if (writing != null && writing.startsWith(prefix)) {
+            return true;
+        }
+        for (String key: pending.keySet()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Number of writes waiting to run
+    public synchronized int backlog() {
+        return pending.size();
+    }
+
+    // Write everything still queued and stop the writer thread
+    @Override
+    public void close() {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // Already shutting down; the hook is running or has run
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Runnable write;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    waitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                Iterator<Map.Entry<String, Runnable>> first = pending.entrySet().iterator();
+                Map.Entry<String, Runnable> entry = first.next();
+                first.remove();
+                writing = entry.getKey();
+                write = entry.getValue();
+            }
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                metrics.add("writeBehind.failed", 1);
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    writing = null;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // Writes must not be given up halfway, so an interrupt while
+    // waiting is remembered and restored once the wait is over
+    private void waitUninterruptibly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            interrupted.add(Thread.currentThread());
+        }
+    }
+
+    private void restoreInterrupt() {
+        if (interrupted.remove(Thread.currentThread())) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerHistoryTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void mostMissedOrdersByMisses() throws IOException {
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            history.record("abate", "减少", 0, true, false, 100);
+            history.record("zeal", "热心", 0, true, false, 100);
+            history.record("zeal", "热心", 1, true, false, 100);
+            history.record("abandon", "放弃", 0, true, true, 100);
+            List<AnswerHistory.WordStat> missed = history.mostMissed(5);
+            assertEquals(2, missed.size());
+            assertEquals("zeal", missed.get(0).word);
+            assertEquals(2, missed.get(0).misses);
+            assertEquals("abate", missed.get(1).word);
+            assertTrue(history.mostMissed(0).isEmpty());
+            assertTrue(history.mostMissed(-1).isEmpty());
+        }
+    }
+
+    @Test
+    void tornRowsAreCutOffOnOpen() throws IOException {
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            history.record("abate", "减少", 0, true, true, 100);
+            history.record("zeal", "热心", 0, true, false, 100);
+        }
+        // A crash between columns leaves one column a row behind
+        // and another with half a row
+        File columns = new File(dir, AnswerHistory.DIR_NAME);
+        truncate(new File(columns, "latency.i32"), 4);
+        truncate(new File(columns, "time.i64"), 12);
+
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            assertEquals(1, history.size());
+            assertTrue(history.mostMissed(5).isEmpty());
+            history.record("zeal", "热心", 1, true, false, 100);
+        }
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            assertEquals(2, history.size());
+            assertEquals(8, new File(columns, "latency.i32").length());
+            assertEquals("zeal", history.mostMissed(5).get(0).word);
+            assertEquals(1, history.accuracy("gre", List.of("abate", "zeal")).correct);
+        }
+    }
+
+    @Test
+    void tornStringIsCutOffOnOpen() throws IOException {
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            history.record("abate", "减少", 0, true, true, 100);
+        }
+        File dictionary = new File(new File(dir, AnswerHistory.DIR_NAME), "strings.dict");
+        long valid = dictionary.length();
+        truncate(dictionary, valid + 3);
+        try (RandomAccessFile raf = new RandomAccessFile(dictionary, "rw")) {
+            raf.seek(valid);
+            raf.writeInt(100);
+        }
+
+        try (AnswerHistory history = new AnswerHistory(dir)) {
+            assertEquals(valid, dictionary.length());
+            history.record("zeal", "热心", 0, true, false, 100);
+            assertEquals("zeal", history.mostMissed(1).get(0).word);
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryWordListTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        Map<String, String> pairs = pairs(500);
+        BinaryWordList list = write("gre", pairs);
+        assertEquals("gre", list.name());
+        assertEquals(pairs.size(), list.size());
+        for (Map.Entry<String, String> pair: pairs.entrySet()) {
+            assertEquals(pair.getValue(), list.get(pair.getKey()));
+        }
+        assertNull(list.get("missing"));
+        assertEquals(pairs, list.toWordList().list);
+        assertFalse(new File(dir, "gre" + BinaryWordList.EXTENSION + AtomicFiles.TEMP_EXTENSION).exists());
+    }
+
+    @Test
+    void putsIdsIntoEveryIdMap() throws IOException {
+        Map<String, String> pairs = pairs(300);
+        BinaryWordList list = write("gre", pairs);
+        WordStore store = new WordStore();
+        Map<String, String> compact = new CompactWordMap(store);
+        Map<String, String> set = new ReviewSet(store);
+        ShardedReviewList sharded = new ShardedReviewList(store, 8);
+        list.putAllInto(compact);
+        list.putAllInto(set);
+        list.putAllInto(sharded);
+        assertEquals(pairs, new HashMap<>(compact));
+        assertEquals(pairs, new HashMap<>(set));
+        assertEquals(pairs, new HashMap<>(sharded));
+        for (String word: pairs.keySet()) {
+            // Each word sits in the shard its String hash picks
+            assertEquals(pairs.get(word), sharded.get(word));
+        }
+        assertEquals(8, sharded.dirtyCount());
+    }
+
+    @Test
+    void removesFromSmallAndLargeTargets() throws IOException {
+        Map<String, String> pairs = pairs(100);
+        BinaryWordList list = write("gre", pairs);
+        WordStore store = new WordStore();
+
+        Map<String, String> small = new CompactWordMap(store);
+        small.put("word3", "meaning3");
+        small.put("other", "其他");
+        list.removeAllFrom(small);
+        assertEquals(Map.of("other", "其他"), small);
+
+        Map<String, String> large = new ReviewSet(store);
+        large.putAll(pairs(200));
+        large.put("other", "其他");
+        list.removeAllFrom(large);
+        assertEquals(101, large.size());
+        assertFalse(large.containsKey("word3"));
+        assertTrue(large.containsKey("word150"));
+
+        Map<String, String> plain = new HashMap<>(pairs(200));
+        list.removeAllFrom(plain);
+        assertEquals(100, plain.size());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        File file = new File(dir, "bad" + BinaryWordList.EXTENSION);
+        Files.write(file.toPath(), "{\"name\":\"bad\"}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> BinaryWordList.open(file));
+        Files.write(file.toPath(), new byte[3]);
+        assertThrows(IOException.class, () -> BinaryWordList.open(file));
+    }
+
+    @Test
+    void jsonConversionRoundTrip() throws IOException {
+        Map<String, String> pairs = pairs(50);
+        write("gre", pairs);
+        File json = new File(dir, "gre.json");
+        BinaryWordList.binaryToJson(BinaryWordList.fileFor(dir, "gre"), json);
+        assertEquals(pairs, new WordListReader().read(json).list);
+    }
+
+    @Test
+    void utf8HashMatchesStringHash() {
+        for (String s: new String[] {"", "abate", "减少，减轻", "café", "😀 smile"}) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            assertEquals(s.hashCode(), WordStore.hashUtf8(ByteBuffer.wrap(bytes), 0, bytes.length), s);
+        }
+    }
+
+    private BinaryWordList write(String name, Map<String, String> pairs) throws IOException {
+        Memorizer.WordList list = new Memorizer.WordList();
+        list.name = name;
+        list.list = pairs;
+        File file = BinaryWordList.fileFor(dir, name);
+        BinaryWordList.write(list, file);
+        return BinaryWordList.open(file);
+    }
+
+    private static Map<String, String> pairs(int n) {
+        Map<String, String> ret = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            ret.put("word" + i, i % 3 == 0 ? "意思" + i : "meaning" + i);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,105 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImporterTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void duplicatePolicies() throws IOException {
+        File source = write("words.txt", "abate: 减少", "zeal: 热心", "abate: 缓和", "abate: 减少");
+
+        Map<String, String> first = run(source, BulkImporter.Format.COLON, BulkImporter.DuplicatePolicy.KEEP_FIRST);
+        assertEquals(Map.of("abate", "减少", "zeal", "热心"), first);
+
+        Map<String, String> last = new HashMap<>();
+        BulkImporter.Result result = new BulkImporter(BulkImporter.Format.COLON,
+                BulkImporter.DuplicatePolicy.KEEP_LAST).run(source, last);
+        assertEquals(Map.of("abate", "减少", "zeal", "热心"), last);
+        assertEquals(2, result.imported);
+        assertEquals(2, result.duplicates);
+
+        Map<String, String> merged = run(source, BulkImporter.Format.COLON, BulkImporter.DuplicatePolicy.MERGE);
+        assertEquals("减少; 缓和", merged.get("abate"));
+    }
+
+    @Test
+    void malformedLinesAreReportedByNumber() throws IOException {
+        File source = write("words.tsv", "abate\t减少", "no separator", "", "\t热心", "zeal\t", "brisk\t轻快");
+        Map<String, String> target = new HashMap<>();
+        BulkImporter.Result result = new BulkImporter(BulkImporter.Format.TSV,
+                BulkImporter.DuplicatePolicy.KEEP_LAST).run(source, target);
+        assertEquals(6, result.lines);
+        assertEquals(2, result.imported);
+        assertEquals(3, result.malformed);
+        assertEquals(List.of(2L, 4L, 5L), result.malformedLines);
+        assertEquals(Set.of("abate", "brisk"), target.keySet());
+    }
+
+    @Test
+    void onlyTheFirstSeparatorSplits() throws IOException {
+        Map<String, String> colon = run(write("words.txt", "ratio: 3:4 or 1:2"),
+                BulkImporter.Format.COLON, BulkImporter.DuplicatePolicy.KEEP_LAST);
+        assertEquals(Map.of("ratio", "3:4 or 1:2"), colon);
+
+        Map<String, String> tsv = run(write("words.tsv", "tab\ta\tb"),
+                BulkImporter.Format.TSV, BulkImporter.DuplicatePolicy.KEEP_LAST);
+        assertEquals(Map.of("tab", "a\tb"), tsv);
+
+        Map<String, String> csv = run(write("words.csv", "\"see, also\",\"a \"\"quoted\"\", meaning\"", "a,b,c"),
+                BulkImporter.Format.CSV, BulkImporter.DuplicatePolicy.KEEP_LAST);
+        assertEquals(Map.of("see, also", "a \"quoted\", meaning"), csv);
+    }
+
+    @Test
+    void headerLineIsSkipped() throws IOException {
+        File source = write("words.csv", "\uFEFFWord,Meaning", "abate,减少", "word,meaning");
+        Map<String, String> target = new HashMap<>();
+        BulkImporter.Result result = new BulkImporter(BulkImporter.Format.CSV,
+                BulkImporter.DuplicatePolicy.KEEP_LAST).run(source, target);
+        assertTrue(result.header);
+        // Only the first line can be a header
+        assertEquals(Map.of("abate", "减少", "word", "meaning"), target);
+
+        assertFalse(new BulkImporter(BulkImporter.Format.CSV, BulkImporter.DuplicatePolicy.KEEP_LAST)
+                .run(write("plain.csv", "abate,减少"), new HashMap<>()).header);
+    }
+
+    @Test
+    void formatAndPolicyNamesIgnoreTheLocale() {
+        Locale locale = Locale.getDefault();
+        // Upper-casing "i" gives a dotted capital I in Turkish
+        Locale.setDefault(new Locale("tr"));
+        try {
+            assertEquals(BulkImporter.Format.TSV, BulkImporter.Format.of(new File("WORDS.TSV")));
+            assertEquals(BulkImporter.Format.CSV, BulkImporter.Format.of(new File("words.Csv")));
+            assertEquals(BulkImporter.Format.COLON, BulkImporter.Format.of(new File("words.txt")));
+            assertEquals(BulkImporter.DuplicatePolicy.KEEP_FIRST, BulkImporter.DuplicatePolicy.of("keep-first"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static Map<String, String> run(File source, BulkImporter.Format format,
+                                           BulkImporter.DuplicatePolicy policy) throws IOException {
+        Map<String, String> ret = new HashMap<>();
+        new BulkImporter(format, policy).run(source, ret);
+        return ret;
+    }
+
+    private File write(String name, String... lines) throws IOException {
+        File ret = new File(dir, name);
+        Files.write(ret.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+}
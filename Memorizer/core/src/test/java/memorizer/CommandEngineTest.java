@@ -0,0 +1,109 @@
+package memorizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandEngineTest {
+    @TempDir
+    File dir;
+
+    private PrintStream out;
+    private CommandEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Keeps what the memorizer prints out of the test output
+        out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        engine = new CommandEngine(dir.getPath(), false);
+        ok("open", "gre");
+        ok("store", "abate", "减少");
+        ok("store", "zeal", "热心");
+        ok("add", "gre");
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+        System.setOut(out);
+    }
+
+    @Test
+    void removingTheListDuringAReviewDropsTheQuestion() {
+        assertNotNull(ok("review").get("word"));
+        ok("remove", "gre");
+
+        CommandEngine.Result answer = engine.execute("answer", "A", "n");
+        assertFalse(answer.ok());
+        CommandEngine.Result review = ok("review");
+        assertNull(review.get("word"));
+        assertEquals(0, review.get("reviewed"));
+        assertEquals(0, ok("addMistakes").get("reviewSize"));
+        ok("quit");
+
+        // Saved as it was; quit puts the list stored this session back
+        engine = new CommandEngine(dir.getPath(), false);
+        assertEquals(2, engine.getMemorizer().reviewSize());
+        assertEquals("减少", engine.getMemorizer().reviewMeaning("abate"));
+    }
+
+    @Test
+    void clearingDuringAReviewEndsIt() {
+        ok("review");
+        ok("clear");
+        assertFalse(engine.execute("answer", "A").ok());
+        assertNull(ok("review").get("word"));
+        ok("quit");
+    }
+
+    @Test
+    void badChoiceChangesNothing() {
+        CommandEngine.Result review = ok("review");
+        assertFalse(engine.execute("answer", "Z", "n").ok());
+        CommandEngine.Result answer = ok("answer", rightAnswer(review), "y");
+        assertEquals(review.get("word"), answer.get("word"));
+        assertEquals(true, answer.get("correct"));
+        ok("clear");
+        // Only a forgotten word would be a mistake
+        assertEquals(0, ok("addMistakes").get("reviewSize"));
+    }
+
+    @Test
+    void wordsLeftInTheReviewSurviveRemovingOthers() {
+        ok("open", "toefl");
+        ok("store", "brisk", "轻快");
+        ok("add", "toefl");
+        Object first = ok("review").get("word");
+        ok("remove", "gre");
+        if (!first.equals("brisk")) {
+            assertFalse(engine.execute("answer", "A").ok());
+            assertEquals("brisk", ok("review").get("word"));
+        }
+        ok("answer", "A");
+        CommandEngine.Result review = ok("review");
+        assertNull(review.get("word"));
+        assertEquals(1, review.get("reviewed"));
+        assertEquals(true, review.get("finished"));
+    }
+
+    private CommandEngine.Result ok(String... command) {
+        CommandEngine.Result ret = engine.execute(command);
+        assertTrue(ret.ok(), ret::toString);
+        return ret;
+    }
+
+    private String rightAnswer(CommandEngine.Result review) {
+        List<?> options = (List<?>) review.get("options");
+        String meaning = engine.getMemorizer().reviewMeaning((String) review.get("word"));
+        return String.valueOf((char) ('A' + options.indexOf(meaning)));
+    }
+}
@@ -0,0 +1,77 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistractorSamplerTest {
+
+    @Test
+    void drawsDistinctMeaningsOtherThanCorrect() {
+        List<String> meanings = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            meanings.add("meaning" + i);
+        }
+        DistractorSampler sampler = new DistractorSampler(meanings, new Random(1));
+        for (int round = 0; round < 100; round++) {
+            List<String> drawn = sampler.sample("meaning7", 3);
+            assertEquals(3, drawn.size());
+            assertEquals(3, new HashSet<>(drawn).size());
+            assertFalse(drawn.contains("meaning7"));
+        }
+    }
+
+    @Test
+    void offersFewerOptionsThanDistinctMeanings() {
+        DistractorSampler sampler = new DistractorSampler(
+                Arrays.asList("apple", "pear", "apple", "pear"), new Random(1));
+        assertEquals(2, sampler.size());
+        assertEquals(Collections.singletonList("pear"), sampler.sample("apple", 3));
+
+        List<String> options = Memorizer.pickMeaning(sampler, "apple");
+        assertEquals(2, options.size());
+        assertEquals(2, new HashSet<>(options).size());
+        assertTrue(options.contains("apple"));
+    }
+
+    @Test
+    void skipsNearMissesThatLeftTheReviewList() {
+        NearMissIndex index = new NearMissIndex(new WordStore());
+        index.addAll(Arrays.asList("a red fruit", "a yellow fruit", "a green fruit", "to run fast"));
+        assertTrue(index.nearest("a red fruit", 2).contains("a yellow fruit"));
+        // "a yellow fruit" left the review list after the index was built
+        DistractorSampler sampler = new DistractorSampler(
+                Arrays.asList("a red fruit", "a green fruit", "to run fast"), new Random(1), index);
+        for (int round = 0; round < 20; round++) {
+            List<String> drawn = sampler.sample("a red fruit", 2);
+            assertEquals(Set.of("a green fruit", "to run fast"), new HashSet<>(drawn));
+            assertEquals("a green fruit", drawn.get(0));
+        }
+    }
+
+    @Test
+    void findsNearMissesBehindManyRemovedOnes() {
+        NearMissIndex index = new NearMissIndex(new WordStore());
+        List<String> meanings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            meanings.add("a small round red fruit that grows on trees, kind " + i);
+        }
+        index.addAll(meanings);
+        String meaning = "a small round green fruit that grows on vines";
+        // Only the oldest look-alike is still in the review list; the
+        // newer ones fill the buckets in front of it
+        Set<String> left = Set.of(meanings.get(0), meaning);
+        assertEquals(Collections.singletonList(meanings.get(0)),
+                index.nearest(meaning, 3, left::contains));
+        assertFalse(index.nearest(meaning, 3).contains(meanings.get(0)));
+    }
+
+    @Test
+    void onlyMeaningLeavesOneOption() {
+        DistractorSampler sampler = new DistractorSampler(Collections.singletonList("apple"), new Random(1));
+        assertTrue(sampler.sample("apple", 3).isEmpty());
+        assertEquals(Collections.singletonList("apple"), Memorizer.pickMeaning(sampler, "apple"));
+    }
+}
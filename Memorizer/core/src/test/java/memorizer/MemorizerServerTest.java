@@ -0,0 +1,87 @@
+package memorizer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemorizerServerTest {
+    @TempDir
+    File dir;
+
+    private PrintStream out;
+    private MemorizerServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private int status;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Keeps what the memorizers print out of the test output
+        out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        server = new MemorizerServer(dir, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+        System.setOut(out);
+    }
+
+    @Test
+    void reviewRunsThroughTheCommandsOfTheConsole() throws Exception {
+        call("/store", "user", "ann", "list", "gre", "word", "abate", "meaning", "减少");
+        call("/store", "user", "ann", "list", "gre", "word", "zeal", "meaning", "热心");
+        assertEquals(true, call("/quit", "user", "ann").get("quit").getAsBoolean());
+
+        int answered = 0;
+        // Gson leaves out the word once the review is over
+        for (JsonObject question = call("/review/next", "user", "ann"); question.has("word");
+                question = call("/review/next", "user", "ann")) {
+            // Asked again until answered
+            assertEquals(question.get("word"), call("/review/next", "user", "ann").get("word"));
+            JsonObject bad = call("/answer", "user", "ann", "choice", "Z");
+            assertEquals(400, status);
+            assertTrue(bad.has("error"));
+
+            JsonObject answer = call("/answer", "user", "ann", "choice", "A", "remembered", "y");
+            assertEquals(200, status);
+            assertEquals(question.get("word"), answer.get("word"));
+            answered++;
+        }
+        assertEquals(2, answered);
+        assertFalse(call("/answer", "user", "ann", "choice", "A").has("correct"));
+        assertEquals(400, status);
+        assertEquals(1, server.sessionCount());
+        call("/quit", "user", "ann");
+        assertEquals(0, server.sessionCount());
+    }
+
+    private JsonObject call(String path, String... params) throws Exception {
+        StringBuilder uri = new StringBuilder("http://localhost:" + server.getPort()).append(path);
+        for (int i = 0; i < params.length; i += 2) {
+            uri.append(i == 0 ? '?' : '&').append(params[i]).append('=')
+                    .append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri.toString())).build(),
+                HttpResponse.BodyHandlers.ofString());
+        status = response.statusCode();
+        return new Gson().fromJson(response.body(), JsonObject.class);
+    }
+}
@@ -0,0 +1,100 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelListLoaderTest {
+    private static final int LISTS = 8;
+    private static final int WORDS = 300;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void mergeKeepsTheOrderOfTheNames() {
+        List<String> names = new ArrayList<>();
+        Map<String, String> sequential = new HashMap<>();
+        for (int list = 0; list < LISTS; list++) {
+            names.add("list" + list);
+            sequential.putAll(pairsOf(list));
+        }
+        ParallelListLoader loader = new ParallelListLoader(4);
+        try {
+            // The later a list, the faster it is parsed
+            Map<String, String> parallel = loader.load(names, name -> {
+                int list = Integer.parseInt(name.substring(4));
+                try {
+                    Thread.sleep(5L * (LISTS - list));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return pairsOf(list);
+            }, Function.identity(), null);
+            assertEquals(sequential, parallel);
+            assertEquals(LISTS, loader.getTimings().lists);
+            assertEquals((long) LISTS * WORDS, loader.getTimings().entries);
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    void addAllToReviewMatchesLoadingOneListAfterAnother() {
+        // Keeps what the memorizers print out of the test output
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            Memorizer memo = new Memorizer(dir.getPath(), false);
+            for (int list = 0; list < LISTS; list++) {
+                memo.initStorage("list" + list);
+                pairsOf(list).forEach(memo::store);
+            }
+            memo.quit();
+            memo.close();
+
+            Map<String, String> sequential = reviewAll(1);
+            Map<String, String> parallel = reviewAll(4);
+            // Every list shares words with the ones next to it
+            assertEquals(WORDS + (LISTS - 1) * WORDS / 2, sequential.size());
+            assertEquals(sequential, parallel);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    // Half of the words of a list are also in the list after it,
+    // with another meaning
+    private static Map<String, String> pairsOf(int list) {
+        Map<String, String> ret = new HashMap<>();
+        for (int i = 0; i < WORDS; i++) {
+            int word = list * WORDS / 2 + i;
+            ret.put("word" + word, "meaning" + word + " of list" + list);
+        }
+        return ret;
+    }
+
+    private Map<String, String> reviewAll(int parallelism) {
+        Memorizer memo = new Memorizer(dir.getPath(), false);
+        memo.setLoadParallelism(parallelism);
+        memo.addAllToReview();
+        Map<String, String> ret = new HashMap<>();
+        for (int word = 0; word < WORDS + LISTS * WORDS / 2; word++) {
+            String meaning = memo.reviewMeaning("word" + word);
+            if (meaning != null) {
+                ret.put("word" + word, meaning);
+            }
+        }
+        assertEquals(memo.reviewSize(), ret.size());
+        memo.setLoadParallelism(1);
+        memo.close();
+        return ret;
+    }
+}
@@ -0,0 +1,55 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSchedulerTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void gradedWordsComeBackWhenDue() {
+        Map<String, String> review = new HashMap<>(Map.of("abate", "减少", "zeal", "热心"));
+        ReviewScheduler scheduler = new ReviewScheduler(new Random(1));
+        scheduler.track(review.keySet(), 0);
+        assertEquals(Set.of("abate", "zeal"), new HashSet<>(scheduler.nextDue(10, 0, review)));
+
+        scheduler.grade("abate", 5, 0);
+        assertEquals(List.of("zeal"), scheduler.nextDue(10, 0, review));
+        assertEquals(List.of("zeal"), scheduler.nextDue(10, DAY - 1, review));
+        assertEquals(Set.of("abate", "zeal"), new HashSet<>(scheduler.nextDue(10, DAY, review)));
+    }
+
+    @Test
+    void prunesWordsThatLeftTheReviewList() {
+        Map<String, String> review = new HashMap<>(Map.of("abate", "减少", "zeal", "热心"));
+        ReviewScheduler scheduler = new ReviewScheduler(new Random(1));
+        scheduler.track(review.keySet(), 0);
+        review.remove("zeal");
+        assertEquals(List.of("abate"), scheduler.nextDue(10, 0, review));
+        assertEquals(1, scheduler.size());
+        assertNull(scheduler.get("zeal"));
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() {
+        ReviewScheduler scheduler = new ReviewScheduler(new Random(1));
+        scheduler.track(List.of("abate", "zeal"), 0);
+        scheduler.grade("abate", 4, 0);
+        ReviewScheduler.save(dir, scheduler.snapshot());
+        assertFalse(new File(dir, ReviewScheduler.FILE_NAME + AtomicFiles.TEMP_EXTENSION).exists());
+
+        ReviewScheduler loaded = ReviewScheduler.load(dir, new Random(1));
+        assertEquals(2, loaded.size());
+        assertEquals(DAY, loaded.get("abate").due);
+        assertEquals(1, loaded.get("abate").repetitions);
+        assertEquals(0, loaded.get("zeal").due);
+    }
+}
@@ -0,0 +1,173 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSetTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void bitmapRoundTripsEveryContainerForm() throws IOException {
+        WordBitmap bitmap = new WordBitmap();
+        // A sparse array, a dense bitmap and one long run
+        for (int id = 0; id < 100; id++) {
+            bitmap.add(id * 7);
+        }
+        for (int id = 1 << 16; id < (1 << 16) + 60000; id += 2) {
+            bitmap.add(id);
+        }
+        for (int id = 3 << 16; id < 4 << 16; id++) {
+            bitmap.add(id);
+        }
+        WordBitmap read = WordBitmap.read(new DataInputStream(new ByteArrayInputStream(bytesOf(bitmap))));
+        assertEquals(bitmap.cardinality(), read.cardinality());
+        assertEquals(idsOf(bitmap), idsOf(read));
+        assertTrue(read.contains((3 << 16) + 0xFFFF));
+        assertFalse(read.contains(2 << 16));
+    }
+
+    @Test
+    void corruptBitmapIsRejected() throws IOException {
+        WordBitmap bitmap = new WordBitmap();
+        for (int id = 0; id < 10; id++) {
+            bitmap.add(id * 3);
+        }
+        byte[] bytes = bytesOf(bitmap);
+        // Cut short
+        assertThrows(EOFException.class, () -> WordBitmap.read(
+                new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 1))));
+        // Cardinality of the container off by one
+        byte[] wrongCount = bytes.clone();
+        wrongCount[7]++;
+        assertThrows(IOException.class, () -> WordBitmap.read(
+                new DataInputStream(new ByteArrayInputStream(wrongCount))));
+        // Unknown container form
+        byte[] wrongForm = bytes.clone();
+        wrongForm[8] = 9;
+        assertThrows(IOException.class, () -> WordBitmap.read(
+                new DataInputStream(new ByteArrayInputStream(wrongForm))));
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() {
+        WordStore store = new WordStore();
+        ReviewSet set = new ReviewSet(store);
+        set.put("abate", "减少");
+        set.put("zeal", "热心");
+        File file = new File(dir, ReviewSet.FILE_NAME);
+        assertDoesNotThrow(() -> set.save(file, 42));
+
+        ReviewSet loaded = ReviewSet.load(file, 42, store);
+        assertNotNull(loaded);
+        assertEquals(set, loaded);
+        // Saved for other review files, or for another store
+        assertNull(ReviewSet.load(file, 43, store));
+        assertNull(ReviewSet.load(file, 42, new WordStore()));
+    }
+
+    @Test
+    void corruptSetIsNotLoaded() throws IOException {
+        WordStore store = new WordStore();
+        ReviewSet set = new ReviewSet(store);
+        set.put("abate", "减少");
+        File file = new File(dir, ReviewSet.FILE_NAME);
+        set.save(file, 42);
+        // The meaning ID, last in the file, points past the store
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 4);
+            raf.writeInt(store.size());
+        }
+        assertNull(ReviewSet.load(file, 42, store));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        assertNull(ReviewSet.load(file, 42, store));
+    }
+
+    @Test
+    void compactedKeepsPairsInANewStore() {
+        WordStore store = new WordStore();
+        ReviewSet set = new ReviewSet(store);
+        for (int i = 0; i < 100; i++) {
+            set.put("word" + i, "meaning" + i);
+        }
+        set.put("word0", "meaning1");
+        for (int i = 2; i < 100; i++) {
+            set.remove("word" + i);
+        }
+        assertEquals(3, set.liveStrings());
+
+        ReviewSet compacted = set.compacted();
+        assertEquals(set, compacted);
+        assertEquals(3, compacted.getStore().size());
+        assertNotEquals(store.getGeneration(), compacted.getStore().getGeneration());
+    }
+
+    @Test
+    void missingMeaningLeavesSetAsItWas() {
+        WordStore store = new WordStore();
+        ReviewSet set = new ReviewSet(store);
+        set.put("abate", "减少");
+        assertThrows(NullPointerException.class, () -> set.put("zeal", null));
+        assertThrows(IllegalArgumentException.class, () -> set.putId(store.intern("zeal"), -1));
+        assertFalse(set.containsKey("zeal"));
+        assertEquals(Map.of("abate", "减少"), new HashMap<>(set));
+        assertEquals(2, set.liveStrings());
+        assertEquals(set, set.compacted());
+    }
+
+    @Test
+    void quitCompactsStoreOnceReviewListShrinks() {
+        // Keeps what the memorizer prints out of the test output
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            Memorizer memo = new Memorizer(dir.getPath(), false);
+            memo.initStorage("gre");
+            for (int i = 0; i < 100; i++) {
+                memo.store("word" + i, "meaning" + i);
+            }
+            memo.quit();
+            memo.close();
+
+            memo = new Memorizer(dir.getPath(), false);
+            Set<String> removed = new HashSet<>();
+            for (int i = 10; i < 100; i++) {
+                removed.add("word" + i);
+            }
+            memo.removeWords(removed);
+            memo.quit();
+            memo.close();
+            assertTrue(memo.getMetrics().get("wordStore.compacted") > 0);
+
+            WordStore store = WordStore.load(new File(dir, WordStore.FILE_NAME));
+            assertEquals(20, store.size());
+            memo = new Memorizer(dir.getPath(), false);
+            assertEquals(1, memo.getMetrics().get("reviewBitmap.hits"));
+            assertEquals(10, memo.reviewSize());
+            assertEquals("meaning3", memo.reviewMeaning("word3"));
+            memo.close();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static byte[] bytesOf(WordBitmap bitmap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    private static List<Integer> idsOf(WordBitmap bitmap) {
+        List<Integer> ret = new ArrayList<>();
+        bitmap.forEach(ret::add);
+        return ret;
+    }
+}
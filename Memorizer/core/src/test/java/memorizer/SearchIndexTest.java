@@ -0,0 +1,69 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void removeListKeepsWordsOfOtherLists() {
+        SearchIndex index = new SearchIndex();
+        index.put("gre", "abate", "减少");
+        index.put("gre", "zeal", "热心");
+        index.put("toefl", "abate", "减轻");
+        index.removeList("gre");
+        assertEquals(List.of("toefl"), index.listsOf("abate"));
+        assertTrue(index.wordsOf("gre").isEmpty());
+        assertEquals(Set.of("abate"), index.wordsOf("toefl"));
+        assertTrue(index.listsOf("zeal").isEmpty());
+        assertEquals(1, index.size());
+
+        // Put back after removal, then removed again
+        index.put("gre", "zeal", "热情");
+        index.remove("gre", "zeal");
+        index.put("gre", "zeal", "热情");
+        index.removeList("gre");
+        assertTrue(index.listsOf("zeal").isEmpty());
+    }
+
+    @Test
+    void searchesByMeaningAfterMeaningChanges() {
+        SearchIndex index = new SearchIndex();
+        index.put("gre", "abate", "to lessen");
+        index.put("gre", "zeal", "great energy");
+        index.put("gre", "abate", "to reduce");
+        index.put("gre", "abate", "to lessen");
+        List<SearchIndex.Match> found = index.byMeaning("lessen", 10);
+        assertEquals(1, found.size());
+        assertEquals("abate", found.get(0).word);
+        assertTrue(index.byMeaning("reduce", 10).isEmpty());
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        SearchIndex index = new SearchIndex();
+        index.replaceList("gre", Map.of("abate", "to lessen", "Abandon", "to give up"));
+        index.replaceList("toefl", Map.of("zeal", "great energy"));
+        File file = new File(dir, SearchIndex.FILE_NAME);
+        index.save(file, list -> list.length());
+        assertFalse(new File(dir, SearchIndex.FILE_NAME + AtomicFiles.TEMP_EXTENSION).exists());
+
+        SearchIndex loaded = SearchIndex.load(file);
+        assertEquals(3, loaded.size());
+        assertEquals(3, loaded.signatureOf("gre"));
+        assertEquals("Abandon", loaded.prefix("ab", 1).get(0).word);
+        assertEquals("zeal", loaded.fuzzy("zeel", 1, 10).get(0).word);
+        loaded.removeList("gre");
+        assertEquals(1, loaded.size());
+    }
+}
@@ -0,0 +1,169 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateManifestTest {
+    private static final String REVIEW = "review.json";
+    private static final String COUNT = "count.txt";
+
+    @TempDir
+    File dir;
+
+    @Test
+    void commitInstallsFilesAndKeepsTheGenerationBefore() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        assertEquals("second", read(REVIEW));
+        assertEquals("2", read(COUNT));
+        assertEquals("first", read(staged(REVIEW, 1)));
+        assertFalse(new File(dir, staged(REVIEW, 2)).exists());
+
+        StateManifest reopened = StateManifest.open(dir);
+        assertEquals(2, reopened.current().number);
+        assertEquals(2, reopened.current().totalCount);
+        assertEquals(0, reopened.recover());
+    }
+
+    @Test
+    void recoverInstallsACommitCutShortAfterTheManifest() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        // As if the crash came right after state.manifest was renamed:
+        // the new files are still staged and the old ones live
+        for (String name: new String[] {REVIEW, COUNT}) {
+            rename(name, staged(name, 2));
+            rename(staged(name, 1), name);
+        }
+
+        assertEquals(2, StateManifest.open(dir).recover());
+        assertEquals("second", read(REVIEW));
+        assertEquals("2", read(COUNT));
+        assertEquals("first", read(staged(REVIEW, 1)));
+    }
+
+    @Test
+    void recoverFinishesAFileCutShortWhileInstalling() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        // review.json was moved aside but the new one not yet moved in
+        rename(REVIEW, staged(REVIEW, 2));
+
+        assertEquals(1, StateManifest.open(dir).recover());
+        assertEquals("second", read(REVIEW));
+        assertEquals("first", read(staged(REVIEW, 1)));
+    }
+
+    @Test
+    void recoverDeletesFilesOfACommitThatNeverHappened() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        write(staged(REVIEW, 2), "half written");
+        write(staged(COUNT, 2), "2");
+
+        assertEquals(2, StateManifest.open(dir).recover());
+        assertFalse(new File(dir, staged(REVIEW, 2)).exists());
+        assertFalse(new File(dir, staged(COUNT, 2)).exists());
+        assertEquals("first", read(REVIEW));
+        assertEquals(1, StateManifest.open(dir).current().number);
+    }
+
+    @Test
+    void restorePutsBackTheFileOfTheQuitBefore() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        write(REVIEW, "{damaged");
+
+        StateManifest.Generation restored = state.restore(REVIEW);
+        assertNotNull(restored);
+        assertEquals(1, restored.number);
+        assertEquals("first", read(REVIEW));
+        // Still there to restore again
+        assertEquals("first", read(staged(REVIEW, 1)));
+
+        write(staged(REVIEW, 1), "other");
+        assertNull(state.restore(REVIEW));
+    }
+
+    @Test
+    void damagedManifestLeavesLiveFilesAlone() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, StateManifest.FILE_NAME), "rw")) {
+            raf.seek(5);
+            raf.write(raf.read() ^ 1);
+        }
+
+        StateManifest reopened = StateManifest.open(dir);
+        assertNull(reopened.current());
+        reopened.recover();
+        assertEquals("second", read(REVIEW));
+        assertEquals("2", read(COUNT));
+        assertNull(reopened.restore(REVIEW));
+    }
+
+    @Test
+    void damagedManifestKeepsStagedFiles() throws IOException {
+        StateManifest state = StateManifest.open(dir);
+        commit(state, 1, "first");
+        commit(state, 2, "second");
+        // Cut short after the manifest: the new files are only staged
+        write(staged(REVIEW, 3), "third");
+        write(staged(COUNT, 3), "3");
+        write(StateManifest.FILE_NAME, "damaged");
+
+        StateManifest reopened = StateManifest.open(dir);
+        assertEquals(0, reopened.recover());
+        assertEquals("first", read(staged(REVIEW, 1)));
+        assertEquals("third", read(staged(REVIEW, 3)));
+        assertEquals("second", read(REVIEW));
+
+        // The next commit numbers past every staged file
+        commit(reopened, 4, "fourth");
+        assertEquals(4, reopened.current().number);
+        assertEquals("fourth", read(REVIEW));
+        StateManifest again = StateManifest.open(dir);
+        assertEquals(4, again.current().number);
+        assertEquals(0, again.recover());
+        assertEquals("fourth", read(REVIEW));
+        assertEquals("4", read(COUNT));
+    }
+
+    private static void commit(StateManifest state, int count, String review) throws IOException {
+        Map<String, AtomicFiles.Content> files = new LinkedHashMap<>();
+        files.put(REVIEW, out -> out.write(review.getBytes(StandardCharsets.UTF_8)));
+        files.put(COUNT, out -> out.write(String.valueOf(count).getBytes(StandardCharsets.UTF_8)));
+        state.commit(count, files);
+    }
+
+    private static String staged(String name, long generation) {
+        return name + "." + generation + StateManifest.STAGED_EXTENSION;
+    }
+
+    private void rename(String from, String to) {
+        assertTrue(new File(dir, from).renameTo(new File(dir, to)));
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(new File(dir, name).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(new File(dir, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,176 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordBundleTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void exportAndUnpackRoundTrip() throws IOException {
+        File from = directory("from");
+        write(from, "gre.json", "{\"name\":\"gre\",\"list\":{\"abate\":\"减少\"}}", 1_000_000_000_000L);
+        write(from, "review.shards/shard-0.json", "{}", 1_100_000_000_000L);
+        write(from, "count.txt", "3", 1_200_000_000_000L);
+        write(from, "gre.json" + AtomicFiles.TEMP_EXTENSION, "half a list", 0);
+        File bundle = new File(dir, "words" + WordBundle.EXTENSION);
+
+        WordBundle.Result exported = WordBundle.export(from, bundle);
+        assertEquals(3, exported.files);
+        assertEquals(Set.of("gre"), WordBundle.lists(bundle));
+
+        File to = directory("to");
+        WordBundle.Result unpacked = WordBundle.unpack(bundle, to, Collections.emptyList());
+        assertEquals(3, unpacked.files);
+        assertEquals(0, unpacked.unchanged);
+        for (String path: new String[] {"gre.json", "review.shards/shard-0.json", "count.txt"}) {
+            File copy = new File(to, path);
+            assertArrayEquals(Files.readAllBytes(new File(from, path).toPath()), Files.readAllBytes(copy.toPath()));
+            assertEquals(new File(from, path).lastModified(), copy.lastModified(), path);
+        }
+        assertFalse(new File(to, "gre.json" + AtomicFiles.TEMP_EXTENSION).exists());
+
+        // Files already there are left alone
+        WordBundle.Result again = WordBundle.unpack(bundle, to, Collections.emptyList());
+        assertEquals(3, again.unchanged);
+        assertEquals(0, again.bytes);
+    }
+
+    @Test
+    void unpacksOnlyTheListsAskedFor() throws IOException {
+        File from = directory("from");
+        write(from, "gre.json", "{}", 1_000_000_000_000L);
+        write(from, "toefl.json", "{}", 1_000_000_000_000L);
+        File bundle = new File(dir, "words" + WordBundle.EXTENSION);
+        WordBundle.export(from, bundle);
+
+        File to = directory("to");
+        WordBundle.unpack(bundle, to, List.of("GRE"));
+        assertTrue(new File(to, "gre.json").exists());
+        assertFalse(new File(to, "toefl.json").exists());
+    }
+
+    @Test
+    void damagedEntryLeavesItsFileAlone() throws IOException {
+        File from = directory("from");
+        write(from, "gre.json", "{\"name\":\"gre\"}", 1_000_000_000_000L);
+        File bundle = new File(dir, "words" + WordBundle.EXTENSION);
+        WordBundle.export(from, bundle);
+        WordBundle.Entry entry = WordBundle.contents(bundle).get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(bundle, "rw")) {
+            raf.seek(entry.offset);
+            raf.write('[');
+        }
+
+        File to = directory("to");
+        write(to, "gre.json", "old", 0);
+        IOException e = assertThrows(IOException.class,
+                () -> WordBundle.unpack(bundle, to, Collections.emptyList()));
+        assertTrue(e.getMessage().contains("gre.json"));
+        assertEquals("old", new String(Files.readAllBytes(new File(to, "gre.json").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void damagedHeaderOrTableIsRejected() throws IOException {
+        File from = directory("from");
+        write(from, "gre.json", "{}", 1_000_000_000_000L);
+        File bundle = new File(dir, "words" + WordBundle.EXTENSION);
+        WordBundle.export(from, bundle);
+        byte[] bytes = Files.readAllBytes(bundle.toPath());
+
+        // Not a bundle at all
+        byte[] magic = bytes.clone();
+        magic[0] ^= 1;
+        Files.write(bundle.toPath(), magic);
+        assertThrows(IOException.class, () -> WordBundle.contents(bundle));
+
+        // Table of contents past the end
+        byte[] table = bytes.clone();
+        table[8] = 0x7f;
+        Files.write(bundle.toPath(), table);
+        assertThrows(IOException.class, () -> WordBundle.contents(bundle));
+
+        // Cut inside the table of contents
+        Files.write(bundle.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> WordBundle.contents(bundle));
+
+        // Entry pointing past the data
+        Files.write(bundle.toPath(), bytes);
+        long length = WordBundle.contents(bundle).get(0).length;
+        try (RandomAccessFile raf = new RandomAccessFile(bundle, "rw")) {
+            // The length is the second long after the path, 24 bytes from the end
+            raf.seek(raf.length() - 24);
+            assertEquals(length, raf.readLong());
+            raf.seek(raf.length() - 24);
+            raf.writeLong(length + 1000);
+        }
+        assertThrows(IOException.class, () -> WordBundle.contents(bundle));
+    }
+
+    @Test
+    void entriesOutsideTheDirectoryAreRejected() throws IOException {
+        File outside = directory("outside");
+        File to = directory("to");
+        Files.createSymbolicLink(new File(to, "link").toPath(), outside.toPath());
+        for (String path: new String[] {"link/gre.json", "C:\\gre.json", "..\\outside\\gre.json", "."}) {
+            File bundle = handBuilt(path, "{}");
+            try {
+                WordBundle.unpack(bundle, to, Collections.emptyList());
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains(path), e.getMessage());
+            }
+            assertEquals(0, outside.list().length, path);
+        }
+        // Where "\\" is no separator, it is part of a name inside dir
+        if (File.separatorChar == '/') {
+            assertTrue(new File(to, "..\\outside\\gre.json").isFile());
+        }
+        assertThrows(IOException.class, () -> WordBundle.unpack(handBuilt("link/gre.json", "{}"), to,
+                Collections.emptyList()));
+    }
+
+    // A bundle of one file at path, written without export
+    private File handBuilt(String path, String content) throws IOException {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        File ret = new File(dir, "hand" + WordBundle.EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(ret))) {
+            out.writeInt(0x4d574231);
+            out.writeInt(1);
+            out.writeLong(16 + data.length);
+            out.write(data);
+            out.writeInt(1);
+            out.writeUTF(path);
+            out.writeLong(16);
+            out.writeLong(data.length);
+            out.writeLong(1_000_000_000_000L);
+            out.writeLong(crc.getValue());
+        }
+        return ret;
+    }
+
+    private File directory(String name) {
+        File ret = new File(dir, name);
+        assertTrue(ret.mkdirs());
+        return ret;
+    }
+
+    private static void write(File dir, String path, String content, long mtime) throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        if (mtime > 0) {
+            assertTrue(file.setLastModified(mtime));
+        }
+    }
+}
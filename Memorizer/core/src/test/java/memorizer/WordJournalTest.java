@@ -0,0 +1,91 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordJournalTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void replaysPutsAndRemoves() throws IOException {
+        try (WordJournal journal = new WordJournal(dir, "gre")) {
+            journal.appendPut("abate", "减少");
+            journal.appendPut("zeal", "热心");
+            journal.appendPut("abate", "减轻");
+            journal.appendRemove("zeal");
+            assertEquals(4, journal.size());
+        }
+        Map<String, String> list = new HashMap<>();
+        list.put("old", "旧的");
+        assertEquals(4, WordJournal.replay(WordJournal.fileFor(dir, "gre"), list));
+        assertEquals(Map.of("old", "旧的", "abate", "减轻"), list);
+        assertFalse(WordJournal.isTorn(WordJournal.fileFor(dir, "gre")));
+    }
+
+    @Test
+    void syncKeepsJournalOpen() throws IOException {
+        try (WordJournal journal = new WordJournal(dir, "gre")) {
+            journal.appendPut("abate", "减少");
+            journal.sync();
+            journal.appendPut("zeal", "热心");
+        }
+        Map<String, String> list = new HashMap<>();
+        assertEquals(2, WordJournal.replay(WordJournal.fileFor(dir, "gre"), list));
+    }
+
+    @Test
+    void ignoresTornLastRecord() throws IOException {
+        try (WordJournal journal = new WordJournal(dir, "gre")) {
+            journal.appendPut("abate", "减少");
+            journal.appendPut("zeal", "热心");
+        }
+        File file = WordJournal.fileFor(dir, "gre");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        assertTrue(WordJournal.isTorn(file));
+        Map<String, String> list = new HashMap<>();
+        assertEquals(1, WordJournal.replay(file, list));
+        assertEquals(Map.of("abate", "减少"), list);
+    }
+
+    @Test
+    void stopsAtGarbage() throws IOException {
+        try (WordJournal journal = new WordJournal(dir, "gre")) {
+            journal.appendPut("abate", "减少");
+        }
+        File file = WordJournal.fileFor(dir, "gre");
+        Files.write(file.toPath(), "]]{\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Map<String, String> list = new HashMap<>();
+        assertEquals(1, WordJournal.replay(file, list));
+        assertEquals(Map.of("abate", "减少"), list);
+    }
+
+    @Test
+    void resetIfSizeKeepsNewerRecords() throws IOException {
+        File file = WordJournal.fileFor(dir, "gre");
+        try (WordJournal journal = new WordJournal(dir, "gre")) {
+            journal.appendPut("abate", "减少");
+            long snapshot = journal.size();
+            journal.appendPut("zeal", "热心");
+            assertFalse(journal.resetIfSize(snapshot));
+            assertTrue(file.exists());
+            assertTrue(journal.resetIfSize(journal.size()));
+            assertFalse(file.exists());
+            assertEquals(0, journal.size());
+        }
+        assertEquals(0, WordJournal.replay(file, new HashMap<>()));
+    }
+}
@@ -0,0 +1,71 @@
+package memorizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordListReaderTest {
+    private static final String LIST = "{\"name\":\"gre\",\"list\":{\"abate\":\"减少，减轻\",\"zeal\":\"热心\"}}";
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperty() {
+        System.clearProperty("memorizer.legacyCharset");
+    }
+
+    @Test
+    void readsUtf8() throws IOException {
+        File file = write("gre.json", LIST, StandardCharsets.UTF_8);
+        WordListReader reader = new WordListReader();
+        Memorizer.WordList list = reader.read(file);
+        assertEquals("gre", list.name);
+        assertEquals("减少，减轻", list.list.get("abate"));
+        assertEquals(2, reader.getEntriesLoaded());
+        assertFalse(reader.usedLegacyCharset());
+    }
+
+    @Test
+    void fallsBackToLegacyCharset() throws IOException {
+        System.setProperty("memorizer.legacyCharset", "GBK");
+        File file = write("gre.json", LIST, Charset.forName("GBK"));
+        WordListReader reader = new WordListReader();
+        Memorizer.WordList list = reader.read(file);
+        assertEquals("减少，减轻", list.list.get("abate"));
+        assertEquals("热心", list.list.get("zeal"));
+        assertEquals(2, list.list.size());
+        assertEquals(2, reader.getEntriesLoaded());
+        assertTrue(reader.usedLegacyCharset());
+    }
+
+    @Test
+    void rejectsMalformedUtf8WhenLegacyIsUtf8() throws IOException {
+        System.setProperty("memorizer.legacyCharset", "UTF-8");
+        File file = write("gre.json", LIST, Charset.forName("GBK"));
+        assertThrows(CharacterCodingException.class, () -> new WordListReader().read(file));
+    }
+
+    @Test
+    void emptyFileIsEmptyList() throws IOException {
+        File file = write("empty.json", "", StandardCharsets.UTF_8);
+        Memorizer.WordList list = new WordListReader().read(file);
+        assertEquals("empty", list.name);
+        assertTrue(list.list.isEmpty());
+    }
+
+    private File write(String name, String content, Charset charset) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(charset));
+        return file;
+    }
+}
@@ -0,0 +1,55 @@
+package memorizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordStoreTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void loadLaterKeepsIdsOfTheFile() throws IOException {
+        File file = new File(dir, WordStore.FILE_NAME);
+        WordStore store = new WordStore();
+        int abate = store.intern("abate");
+        int zeal = store.intern("热心");
+        store.save(file);
+
+        // The first use reads the file before handing out an ID
+        WordStore later = WordStore.loadLater(file);
+        assertEquals(2, later.intern("new"));
+        assertEquals(zeal, later.lookup("热心"));
+        assertEquals(store.getGeneration(), later.getGeneration());
+
+        WordStore preloaded = WordStore.loadLater(file);
+        preloaded.preload();
+        assertEquals("abate", preloaded.get(abate));
+        assertEquals(2, preloaded.size());
+    }
+
+    @Test
+    void tornStringIsLeftOut() throws IOException {
+        File file = new File(dir, WordStore.FILE_NAME);
+        WordStore store = new WordStore();
+        store.intern("abate");
+        store.intern("zeal");
+        store.save(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        WordStore loaded = WordStore.load(file);
+        assertEquals(1, loaded.size());
+        assertEquals(-1, loaded.lookup("zeal"));
+
+        // Saving again rewrites the file instead of appending to the torn one
+        loaded.intern("zeal");
+        loaded.save(file);
+        assertEquals(1, WordStore.load(file).lookup("zeal"));
+    }
+}